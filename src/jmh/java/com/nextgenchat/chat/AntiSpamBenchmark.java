@@ -0,0 +1,93 @@
+package com.nextgenchat.chat;
+
+import com.nextgenchat.config.NextgenChatConfig;
+import net.minecraft.network.chat.Component;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AntiSpamService#validateMessage} on the accepted path (cooldown off, so every stage runs),
+ * on the cooldown rejection path, and with several threads validating for a small set of players
+ * at once, as the chat pipeline's worker threads do during a storm.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AntiSpamBenchmark {
+	private static final String[] MESSAGES = {
+		"всем привет",
+		"кто идёт в шахту на 12 уровень?",
+		"продам алмазную кирку, пишите в лс",
+		"where is the nether portal from spawn",
+		"спасибо за помощь с фермой!",
+		"кто-нибудь видел деревню рядом с x 1200 z -300",
+		"gg",
+		"admin, can you check the lag at the market please",
+	};
+
+	@State(Scope.Benchmark)
+	public static class Service {
+		@Param({"1000"})
+		public int players;
+
+		@Param({"0", "3"})
+		public int cooldownSeconds;
+
+		AntiSpamService antiSpam;
+		UUID[] playerIds;
+
+		@Setup
+		public void setup() {
+			NextgenChatConfig config = new NextgenChatConfig();
+			config.antiSpam.messageCooldown = cooldownSeconds;
+			// With the default threshold almost every call is a flood rejection after warmup, which hides the other stages.
+			config.antiSpam.floodThreshold = 1_000_000;
+			config.publish();
+			antiSpam = new AntiSpamService(config, null);
+			playerIds = new UUID[players];
+			for (int i = 0; i < players; i++) {
+				playerIds[i] = UUID.randomUUID();
+				antiSpam.warm(playerIds[i]);
+			}
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Cursor {
+		int player;
+		int message;
+	}
+
+	@Benchmark
+	public Optional<Component> validate(Service service, Cursor cursor) {
+		return next(service, cursor, service.playerIds.length);
+	}
+
+	/**
+	 * Four threads sharing eight players: measures per-player lock contention. Correctness under
+	 * the same kind of load is checked by {@link AntiSpamStressTest}.
+	 */
+	@Benchmark
+	@Threads(4)
+	public Optional<Component> validateContended(Service service, Cursor cursor) {
+		return next(service, cursor, Math.min(8, service.playerIds.length));
+	}
+
+	private static Optional<Component> next(Service service, Cursor cursor, int playerCount) {
+		UUID playerId = service.playerIds[cursor.player];
+		String message = MESSAGES[cursor.message];
+		cursor.player = (cursor.player + 1) % playerCount;
+		cursor.message = (cursor.message + 1) % MESSAGES.length;
+		return service.antiSpam.validateMessage(playerId, message, false);
+	}
+}
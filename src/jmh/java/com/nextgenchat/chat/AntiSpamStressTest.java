@@ -0,0 +1,171 @@
+package com.nextgenchat.chat;
+
+import com.nextgenchat.config.ConfigSnapshot;
+import com.nextgenchat.config.NextgenChatConfig;
+import net.minecraft.network.chat.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * Concurrency check for {@link AntiSpamService}: several threads validate messages at once, first
+ * each for its own players, then all for the same shared players, and the exact number of accepted,
+ * flood and repeat outcomes is compared with what a single thread would get. Lost updates in a
+ * player's rings or counters show up as a count mismatch. Cooldown and similarity are off and the
+ * flood window is an hour, so the expected counts do not depend on timing or interleaving.
+ * <p>
+ * Run with {@code ./gradlew antiSpamStressTest}; exits with status 1 on any mismatch or exception.
+ */
+public final class AntiSpamStressTest {
+	private static final int THREADS = 8;
+	private static final int MESSAGES_PER_THREAD = 30_000;
+	private static final int PLAYERS_PER_THREAD = 2;
+	private static final int SHARED_PLAYERS = 16;
+	private static final int FLOOD_THRESHOLD = 5000;
+	private static final int MAX_REPEATED = 3;
+
+	private AntiSpamStressTest() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		NextgenChatConfig config = new NextgenChatConfig();
+		config.antiSpam.enableAntiSpam = true;
+		config.antiSpam.messageCooldown = 0;
+		config.antiSpam.enableSimilarityCheck = false;
+		config.antiSpam.enableAntiFlood = true;
+		config.antiSpam.floodThreshold = FLOOD_THRESHOLD;
+		config.antiSpam.floodTimeWindow = 3600;
+		config.antiSpam.maxRepeatedMessages = MAX_REPEATED;
+		config.publish();
+		ConfigSnapshot.AntiSpam settings = config.snapshot().antiSpam;
+
+		boolean passed = disjointPlayers(config, settings);
+		passed &= sharedPlayers(config, settings);
+		if (!passed) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Each thread sends to its own players, each text three times in a row: the third copy is a
+	 * repeat, the rest reach the flood check.
+	 */
+	private static boolean disjointPlayers(NextgenChatConfig config, ConfigSnapshot.AntiSpam settings) throws Exception {
+		AntiSpamService antiSpam = new AntiSpamService(config, null);
+		int perPlayer = MESSAGES_PER_THREAD / PLAYERS_PER_THREAD;
+		Outcomes outcomes = run(settings, thread -> {
+			UUID[] players = new UUID[PLAYERS_PER_THREAD];
+			for (int i = 0; i < players.length; i++) {
+				players[i] = new UUID(thread, i);
+			}
+			Outcomes local = new Outcomes();
+			for (int i = 0; i < MESSAGES_PER_THREAD; i++) {
+				int sent = i / PLAYERS_PER_THREAD;
+				local.add(settings, antiSpam.validateMessage(players[i % PLAYERS_PER_THREAD], "сообщение " + sent / MAX_REPEATED, false));
+			}
+			return local;
+		});
+
+		int players = THREADS * PLAYERS_PER_THREAD;
+		int repeats = perPlayer / MAX_REPEATED;
+		int checkedForFlood = perPlayer - repeats;
+		int accepted = Math.min(FLOOD_THRESHOLD - 1, checkedForFlood);
+		return outcomes.expect("disjoint players", (long) players * accepted,
+			(long) players * (checkedForFlood - accepted), (long) players * repeats);
+	}
+
+	/**
+	 * Every thread sends distinct texts to all shared players in turn, so nothing repeats and
+	 * exactly {@code floodThreshold - 1} messages per player get through.
+	 */
+	private static boolean sharedPlayers(NextgenChatConfig config, ConfigSnapshot.AntiSpam settings) throws Exception {
+		AntiSpamService antiSpam = new AntiSpamService(config, null);
+		UUID[] players = new UUID[SHARED_PLAYERS];
+		for (int i = 0; i < players.length; i++) {
+			players[i] = UUID.randomUUID();
+		}
+		Outcomes outcomes = run(settings, thread -> {
+			Outcomes local = new Outcomes();
+			for (int i = 0; i < MESSAGES_PER_THREAD; i++) {
+				local.add(settings, antiSpam.validateMessage(players[i % SHARED_PLAYERS], "поток " + thread + " сообщение " + i, false));
+			}
+			return local;
+		});
+
+		long total = (long) THREADS * MESSAGES_PER_THREAD;
+		long accepted = (long) SHARED_PLAYERS * (FLOOD_THRESHOLD - 1);
+		return outcomes.expect("shared players", accepted, total - accepted, 0);
+	}
+
+	private static Outcomes run(ConfigSnapshot.AntiSpam settings, Sender sender) throws InterruptedException {
+		CyclicBarrier start = new CyclicBarrier(THREADS);
+		ConcurrentLinkedQueue<Outcomes> results = new ConcurrentLinkedQueue<>();
+		ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+		List<Thread> threads = new ArrayList<>(THREADS);
+		for (int t = 0; t < THREADS; t++) {
+			int thread = t;
+			threads.add(Thread.ofPlatform().name("AntiSpamStress-" + t).start(() -> {
+				try {
+					start.await();
+					results.add(sender.send(thread));
+				} catch (Throwable e) {
+					failures.add(e);
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Outcomes total = new Outcomes();
+		results.forEach(total::merge);
+		total.failures.addAll(failures);
+		return total;
+	}
+
+	@FunctionalInterface
+	private interface Sender {
+		Outcomes send(int thread) throws Exception;
+	}
+
+	private static final class Outcomes {
+		private long accepted;
+		private long flood;
+		private long repeat;
+		private long other;
+		private final List<Throwable> failures = new ArrayList<>();
+
+		private void add(ConfigSnapshot.AntiSpam settings, Optional<Component> result) {
+			if (result.isEmpty()) {
+				accepted++;
+			} else if (result.get() == settings.floodMessage()) {
+				flood++;
+			} else if (result.get() == settings.repeatMessage()) {
+				repeat++;
+			} else {
+				other++;
+			}
+		}
+
+		private void merge(Outcomes outcomes) {
+			accepted += outcomes.accepted;
+			flood += outcomes.flood;
+			repeat += outcomes.repeat;
+			other += outcomes.other;
+		}
+
+		private boolean expect(String name, long accepted, long flood, long repeat) {
+			boolean passed = failures.isEmpty() && other == 0
+				&& this.accepted == accepted && this.flood == flood && this.repeat == repeat;
+			System.out.printf("%-17s %s: accepted %d/%d, flood %d/%d, repeat %d/%d, other %d, exceptions %d%n",
+				name, passed ? "OK" : "FAILED", this.accepted, accepted, this.flood, flood, this.repeat, repeat,
+				other, failures.size());
+			failures.forEach(Throwable::printStackTrace);
+			return passed;
+		}
+	}
+}
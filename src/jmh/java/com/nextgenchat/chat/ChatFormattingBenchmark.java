@@ -0,0 +1,70 @@
+package com.nextgenchat.chat;
+
+import com.nextgenchat.config.NextgenChatConfig;
+import com.nextgenchat.format.MessageFormats;
+import com.nextgenchat.format.PlayerFormatContext;
+import com.nextgenchat.luckperms.PlayerMeta;
+import com.nextgenchat.util.TextUtils;
+import net.minecraft.network.chat.Component;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chat line formatting: the compiled template against the chained {@code String.replace} it
+ * replaced, the conversion of a rendered line to a Component, and rendering straight into one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChatFormattingBenchmark {
+	private static final String MESSAGE = "всем привет, кто идёт в шахту на 12 уровень?";
+
+	private NextgenChatConfig config;
+	private MessageFormats formats;
+	private PlayerMeta meta;
+	private String rendered;
+
+	@Setup
+	public void setup() {
+		config = new NextgenChatConfig();
+		config.chat.globalChatFormat = "&6[G] %luckperms_prefix%&f{player}%luckperms_suffix%&7: {message}";
+		formats = MessageFormats.compile(config);
+		meta = new PlayerMeta("Steve", "Steve", "&7[&aИгрок&7] ", "", "default");
+		rendered = formats.globalChat.render(new PlayerFormatContext(meta, MESSAGE));
+	}
+
+	@Benchmark
+	public String compiledTemplate() {
+		return formats.globalChat.render(new PlayerFormatContext(meta, MESSAGE));
+	}
+
+	@Benchmark
+	public String chainedReplace() {
+		return config.chat.globalChatFormat
+			.replace("{player}", meta.name())
+			.replace("{message}", MESSAGE)
+			.replace("%player%", meta.name())
+			.replace("%player_name%", meta.name())
+			.replace("%player_displayname%", meta.displayName())
+			.replace("%luckperms_prefix%", meta.prefix())
+			.replace("%luckperms_suffix%", meta.suffix())
+			.replace("%luckperms_group%", meta.primaryGroup());
+	}
+
+	@Benchmark
+	public Component toComponent() {
+		return TextUtils.toComponent(rendered);
+	}
+
+	@Benchmark
+	public Component renderComponent() {
+		return formats.globalChat.renderComponent(new PlayerFormatContext(meta, MESSAGE));
+	}
+}
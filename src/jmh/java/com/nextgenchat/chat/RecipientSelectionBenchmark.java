@@ -0,0 +1,112 @@
+package com.nextgenchat.chat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local chat recipient selection: the grid lookup against the linear scan over every online player
+ * that ChatService did before.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RecipientSelectionBenchmark {
+	private static final Object[] LEVELS = {"overworld", "the_nether", "the_end"};
+
+	@Param({"200", "2000"})
+	public int players;
+
+	@Param({"100"})
+	public int radius;
+
+	private RecipientGrid<Position> grid;
+	private final List<Position> online = new ArrayList<>();
+	private Position[] senders;
+	private int next;
+
+	@Setup
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(42);
+		grid = new RecipientGrid<>(radius);
+		online.clear();
+		for (int i = 0; i < players; i++) {
+			// Most players on the overworld, clustered around spawn like a real server.
+			Object level = LEVELS[random.nextInt(10) < 7 ? 0 : 1 + random.nextInt(2)];
+			double spread = random.nextInt(4) == 0 ? 3000 : 400;
+			Position position = new Position(UUID.randomUUID(), level,
+				random.nextDouble(-spread, spread), 64 + random.nextDouble(-16, 16), random.nextDouble(-spread, spread));
+			online.add(position);
+			grid.update(position.id, position, position.level, position.x, position.y, position.z);
+		}
+		senders = online.subList(0, Math.min(64, online.size())).toArray(new Position[0]);
+	}
+
+	@Benchmark
+	public void grid(Blackhole blackhole) {
+		Position sender = nextSender();
+		grid.forEachWithin(sender.level, sender.x, sender.y, sender.z, radius, blackhole::consume);
+	}
+
+	@Benchmark
+	public void linearScan(Blackhole blackhole) {
+		Position sender = nextSender();
+		double radiusSquared = (double) radius * radius;
+		for (Position candidate : online) {
+			if (candidate.level != sender.level) {
+				continue;
+			}
+			double dx = candidate.x - sender.x;
+			double dy = candidate.y - sender.y;
+			double dz = candidate.z - sender.z;
+			if (dx * dx + dy * dy + dz * dz <= radiusSquared) {
+				blackhole.consume(candidate);
+			}
+		}
+	}
+
+	/**
+	 * Per-tick maintenance cost: every player moves a little and is re-indexed.
+	 */
+	@Benchmark
+	public void trackAll() {
+		for (Position position : online) {
+			position.x += 0.25;
+			grid.update(position.id, position, position.level, position.x, position.y, position.z);
+		}
+	}
+
+	private Position nextSender() {
+		Position sender = senders[next];
+		next = (next + 1) % senders.length;
+		return sender;
+	}
+
+	private static final class Position {
+		private final UUID id;
+		private final Object level;
+		private double x;
+		private final double y;
+		private final double z;
+
+		private Position(UUID id, Object level, double x, double y, double z) {
+			this.id = id;
+			this.level = level;
+			this.x = x;
+			this.y = y;
+			this.z = z;
+		}
+	}
+}
@@ -0,0 +1,348 @@
+package com.nextgenchat.harness;
+
+import com.nextgenchat.broadcast.BroadcastService;
+import com.nextgenchat.chat.AntiSpamService;
+import com.nextgenchat.chat.ChatPipeline;
+import com.nextgenchat.chat.ChatService;
+import com.nextgenchat.config.NextgenChatConfig;
+import com.nextgenchat.luckperms.LuckPermsBridge;
+import com.nextgenchat.luckperms.StubLuckPerms;
+import com.nextgenchat.moderation.ModerationService;
+import com.nextgenchat.permission.PermissionNode;
+import com.nextgenchat.permission.PermissionService;
+import com.nextgenchat.stats.TickTracker;
+import com.nextgenchat.util.TickScheduler;
+import net.minecraft.SharedConstants;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.server.level.ServerPlayer;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Headless chat load generator. Builds the mod's services around a {@link SimulatedServer} and an
+ * in-process {@link StubLuckPerms}, then plays back a fixed number of server ticks, as fast as
+ * possible or at real-time pace with {@code --realtime=true}. Each tick refreshes the local chat
+ * grid, submits that tick's share of chat messages to a {@link ChatPipeline}, issues mutes and
+ * broadcasts, and ends with {@link ChatPipeline#flush()}, the same calls the mod makes; this thread
+ * acts as the server thread and the pipeline's workers validate in parallel. Latency is measured
+ * per message from {@code submit} to its delivery in {@code flush}, so it includes the wait for
+ * the end of the tick that players see.
+ * <p>
+ * Allocation is counted over every thread, workers included.
+ * <p>
+ * Run with {@code ./gradlew loadTest --args="--players=2000 --rate=1000"}; see {@link Options} for
+ * every option.
+ */
+public final class ChatLoadHarness {
+	private static final long TICK_NANOS = 50_000_000L;
+	private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+	private static final String[] MESSAGES = {
+		"всем привет",
+		"кто идёт в шахту на 12 уровень?",
+		"продам алмазную кирку, пишите в лс",
+		"where is the nether portal from spawn",
+		"спасибо за помощь с фермой!",
+		"кто-нибудь видел деревню рядом с x 1200 z -300",
+		"gg",
+		"admin, can you check the lag at the market please",
+		"ищу команду для постройки замка",
+		"лагает только у меня?",
+	};
+
+	private ChatLoadHarness() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		Options options = Options.parse(args);
+		SharedConstants.tryDetectVersion();
+		Bootstrap.bootStrap();
+
+		SimulatedServer simulated = new SimulatedServer(options.players, options.levels, options.seed);
+		List<ServerPlayer> players = simulated.players();
+
+		// Every player may chat; one in fifty is staff and holds every node, including the bypasses
+		// and moderation notifications. Everything else falls back to the config defaults.
+		Set<String> chatNodes = Set.of(PermissionNode.LOCAL_CHAT.node(), PermissionNode.GLOBAL_CHAT.node());
+		new StubLuckPerms((playerId, node) -> chatNodes.contains(node)
+			|| playerId.getLeastSignificantBits() % 50 == 0, "&7[Игрок] ").register();
+
+		NextgenChatConfig config = new NextgenChatConfig();
+		config.moderation.logMuteActions = false;
+		config.antiSpam.messageCooldown = options.cooldownSeconds;
+		config.publish();
+
+		Path dataDir = Files.createTempDirectory("nextgenchat-load");
+		LuckPermsBridge luckPerms = new LuckPermsBridge(true);
+		PermissionService permissions = new PermissionService(config, luckPerms);
+		ModerationService moderation = new ModerationService(config, permissions, dataDir);
+		AntiSpamService antiSpam = new AntiSpamService(config, permissions);
+		TimedChatService chat = new TimedChatService(config, permissions, moderation, antiSpam, luckPerms);
+		ChatPipeline pipeline = new ChatPipeline(config, chat);
+		TickTracker ticks = new TickTracker(config.timing.ticksPerSecond);
+		BroadcastService broadcast = new BroadcastService(config, new TickScheduler(), ticks);
+		ModerationService.Actor moderator = new HarnessActor();
+
+		for (ServerPlayer player : players) {
+			permissions.warm(player);
+			luckPerms.warmMeta(player);
+			antiSpam.warm(player.getUUID());
+		}
+
+		SplittableRandom random = new SplittableRandom(options.seed);
+		double messagesPerTick = options.rate / 20.0;
+		double mutesPerTick = options.mutesPerMinute / 1200.0;
+		double broadcastsPerTick = options.broadcastsPerMinute / 1200.0;
+		double messageBudget = 0;
+		double muteBudget = 0;
+		double broadcastBudget = 0;
+		long submitted = 0;
+		long mutes = 0;
+		long broadcasts = 0;
+		long serverStartedAtMs = System.currentTimeMillis();
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		int totalTicks = options.warmupSeconds * 20 + options.durationSeconds * 20;
+		int measuredFrom = options.warmupSeconds * 20;
+		long startedAt = 0;
+		long allocatedAtStart = 0;
+		long packetsAtStart = 0;
+		long maxTickNanos = 0;
+
+		for (int tick = 0; tick < totalTicks; tick++) {
+			boolean measuring = tick >= measuredFrom;
+			if (tick == measuredFrom) {
+				startedAt = System.nanoTime();
+				allocatedAtStart = threads.getTotalThreadAllocatedBytes();
+				packetsAtStart = simulated.packetsSent();
+				chat.measuring = true;
+			}
+
+			long tickStart = System.nanoTime();
+			ticks.onTickStart();
+			simulated.tick();
+			chat.trackPlayers(simulated.server());
+
+			messageBudget += messagesPerTick;
+			while (messageBudget >= 1) {
+				messageBudget--;
+				ServerPlayer sender = players.get(random.nextInt(players.size()));
+				String text = MESSAGES[random.nextInt(MESSAGES.length)];
+				String message = random.nextInt(100) < options.globalPercent ? config.chat.globalChatSymbol + text : text;
+
+				chat.submitted(sender);
+				pipeline.submit(sender, message);
+				submitted++;
+			}
+
+			muteBudget += mutesPerTick;
+			while (muteBudget >= 1) {
+				muteBudget--;
+				ServerPlayer target = players.get(random.nextInt(players.size()));
+				if (moderation.isMuted(target.getUUID())) {
+					moderation.unmutePlayer(target, moderator);
+				} else {
+					moderation.mutePlayer(target, moderator, "10m", "нагрузочный тест");
+				}
+				if (measuring) {
+					mutes++;
+				}
+			}
+
+			broadcastBudget += broadcastsPerTick;
+			while (broadcastBudget >= 1) {
+				broadcastBudget--;
+				broadcast.sendNext(simulated.server(), serverStartedAtMs);
+				if (measuring) {
+					broadcasts++;
+				}
+			}
+
+			pipeline.flush();
+			ticks.onTickEnd();
+			long tickNanos = System.nanoTime() - tickStart;
+			if (measuring) {
+				maxTickNanos = Math.max(maxTickNanos, tickNanos);
+			}
+			if (options.realtime && tickNanos < TICK_NANOS) {
+				LockSupport.parkNanos(TICK_NANOS - tickNanos);
+			}
+		}
+
+		// Deliver what the workers still hold, one tick at a time as the server would.
+		long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+		while (chat.delivered < submitted && System.nanoTime() < drainDeadline) {
+			LockSupport.parkNanos(options.realtime ? TICK_NANOS : 1_000_000L);
+			pipeline.flush();
+		}
+
+		long elapsedNanos = System.nanoTime() - startedAt;
+		long allocated = threads.getTotalThreadAllocatedBytes() - allocatedAtStart;
+		long packets = simulated.packetsSent() - packetsAtStart;
+		long lost = submitted - chat.delivered;
+		LatencySamples latencies = chat.latencies;
+
+		pipeline.shutdown();
+		moderation.shutdown();
+		permissions.shutdown();
+		luckPerms.shutdown();
+		deleteRecursively(dataDir);
+
+		double seconds = elapsedNanos / 1e9;
+		int messages = latencies.size();
+		System.out.printf("players=%d levels=%d rate=%d/s global=%d%% ticks=%d (%.1f s simulated)%n",
+			options.players, options.levels, options.rate, options.globalPercent,
+			options.durationSeconds * 20, (double) options.durationSeconds);
+		System.out.printf("wall time          %.3f s (%.1fx real time), max tick %.3f ms%n",
+			seconds, options.durationSeconds / seconds, maxTickNanos / 1e6);
+		System.out.printf("chat messages      %d (%d rejected, %d undelivered), %.0f msg/s%n",
+			messages, chat.rejected, lost, messages / seconds);
+		System.out.printf("packets fanned out %d, %.0f packets/s%n", packets, packets / seconds);
+		System.out.printf("mutes/unmutes      %d, broadcasts %d%n", mutes, broadcasts);
+		System.out.printf("latency            p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us%n",
+			latencies.percentile(50) / 1e3, latencies.percentile(99) / 1e3,
+			latencies.percentile(99.9) / 1e3, latencies.max() / 1e3);
+		System.out.printf("allocation         %.1f MB/s, %.0f B/message%n",
+			allocated / seconds / (1024 * 1024), messages > 0 ? (double) allocated / messages : 0.0);
+	}
+
+	private static void deleteRecursively(Path dir) throws IOException {
+		try (Stream<Path> paths = Files.walk(dir)) {
+			for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+				Files.deleteIfExists(path);
+			}
+		}
+	}
+
+	/**
+	 * Command-line options, each given as {@code --name=value}.
+	 *
+	 * @param players             online stand-in players
+	 * @param levels              levels the players are spread over
+	 * @param rate                chat messages per simulated second
+	 * @param globalPercent       share of messages sent to global chat
+	 * @param mutesPerMinute      mute or unmute commands per simulated minute
+	 * @param broadcastsPerMinute auto-broadcasts per simulated minute
+	 * @param cooldownSeconds     anti-spam cooldown; the default 0 keeps most messages on the full path
+	 * @param warmupSeconds       simulated seconds run before measuring
+	 * @param durationSeconds     simulated seconds measured
+	 * @param realtime            sleep out each 50 ms tick instead of running flat out, so that the
+	 *                            anti-spam time windows see the configured per-player rates
+	 * @param seed                random seed for positions and traffic
+	 */
+	record Options(
+		int players,
+		int levels,
+		int rate,
+		int globalPercent,
+		int mutesPerMinute,
+		int broadcastsPerMinute,
+		int cooldownSeconds,
+		int warmupSeconds,
+		int durationSeconds,
+		boolean realtime,
+		long seed
+	) {
+		static Options parse(String[] args) {
+			Map<String, String> values = new HashMap<>();
+			for (String arg : args) {
+				if (!arg.startsWith("--") || !arg.contains("=")) {
+					throw new IllegalArgumentException("Expected --name=value, got " + arg);
+				}
+				int split = arg.indexOf('=');
+				values.put(arg.substring(2, split), arg.substring(split + 1));
+			}
+
+			Options options = new Options(
+				intValue(values, "players", 2000),
+				intValue(values, "levels", 3),
+				intValue(values, "rate", 500),
+				intValue(values, "global-percent", 20),
+				intValue(values, "mutes-per-minute", 30),
+				intValue(values, "broadcasts-per-minute", 6),
+				intValue(values, "cooldown", 0),
+				intValue(values, "warmup", 10),
+				intValue(values, "duration", 60),
+				Boolean.parseBoolean(values.getOrDefault("realtime", "false")),
+				Long.parseLong(values.getOrDefault("seed", "42"))
+			);
+			values.remove("realtime");
+			values.remove("seed");
+			if (!values.isEmpty()) {
+				throw new IllegalArgumentException("Unknown options: " + values.keySet());
+			}
+			return options;
+		}
+
+		private static int intValue(Map<String, String> values, String name, int defaultValue) {
+			String value = values.remove(name);
+			return value != null ? Integer.parseInt(value) : defaultValue;
+		}
+	}
+
+	/**
+	 * Times each message from {@link #submitted} to its delivery. A player's messages reach
+	 * {@code deliver} in the order they were submitted, so per-sender FIFOs of submit times pair
+	 * them up; only the server thread touches them.
+	 */
+	private static final class TimedChatService extends ChatService {
+		private final Map<UUID, ArrayDeque<Long>> submittedAt = new HashMap<>();
+		private final LatencySamples latencies = new LatencySamples();
+		private boolean measuring;
+		private long delivered;
+		private long rejected;
+
+		private TimedChatService(NextgenChatConfig config, PermissionService permissions, ModerationService moderation,
+						AntiSpamService antiSpam, LuckPermsBridge luckPerms) {
+			super(config, permissions, moderation, antiSpam, luckPerms);
+		}
+
+		private void submitted(ServerPlayer sender) {
+			submittedAt.computeIfAbsent(sender.getUUID(), ignored -> new ArrayDeque<>()).add(System.nanoTime());
+		}
+
+		@Override
+		public void deliver(PreparedMessage prepared) {
+			super.deliver(prepared);
+			Long start = submittedAt.get(prepared.sender().getUUID()).poll();
+			delivered++;
+			if (measuring && start != null) {
+				latencies.record(System.nanoTime() - start);
+				if (prepared.isReply()) {
+					rejected++;
+				}
+			}
+		}
+	}
+
+	private static final class HarnessActor implements ModerationService.Actor {
+		private static final UUID ID = new UUID(0xC0FFEEL, -1L);
+
+		@Override
+		public UUID id() {
+			return ID;
+		}
+
+		@Override
+		public String name() {
+			return "LoadTest";
+		}
+
+		@Override
+		public void sendMessage(String message) {
+		}
+	}
+}
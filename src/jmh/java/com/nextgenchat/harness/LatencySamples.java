@@ -0,0 +1,41 @@
+package com.nextgenchat.harness;
+
+import java.util.Arrays;
+
+/**
+ * Growable buffer of latency samples in nanoseconds. A load run records at most a few million
+ * samples, so keeping them all and sorting once gives exact percentiles.
+ */
+final class LatencySamples {
+	private long[] samples = new long[1 << 16];
+	private int size;
+	private boolean sorted;
+
+	void record(long nanos) {
+		if (size == samples.length) {
+			samples = Arrays.copyOf(samples, size * 2);
+		}
+		samples[size++] = nanos;
+		sorted = false;
+	}
+
+	int size() {
+		return size;
+	}
+
+	long percentile(double percentile) {
+		if (size == 0) {
+			return 0L;
+		}
+		if (!sorted) {
+			Arrays.sort(samples, 0, size);
+			sorted = true;
+		}
+		int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+		return samples[Math.max(0, Math.min(size - 1, index))];
+	}
+
+	long max() {
+		return percentile(100.0);
+	}
+}
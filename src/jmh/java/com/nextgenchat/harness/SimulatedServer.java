@@ -0,0 +1,121 @@
+package com.nextgenchat.harness;
+
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.server.network.ServerGamePacketListenerImpl;
+import net.minecraft.server.players.PlayerList;
+import net.minecraft.world.entity.player.ChatVisiblity;
+import net.minecraft.world.phys.Vec3;
+import org.mockito.MockSettings;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * A server, its levels and a population of stand-in players, built from stub-only Mockito mocks.
+ * Players stay where they spawn: most of them around a few hotspots in the first level, the rest
+ * spread over the others. Every packet sent to any player is counted instead of being encoded.
+ * <p>
+ * Mock dispatch allocates, so the harness's allocation figures include some overhead of their own;
+ * compare runs with each other rather than with a production profile.
+ */
+final class SimulatedServer {
+	private static final String[] LEVEL_NAMES = {"overworld", "the_nether", "the_end", "resource"};
+
+	private final MinecraftServer server;
+	private final List<ServerPlayer> players;
+	private final LongAdder packetsSent = new LongAdder();
+	private int tickCount;
+
+	SimulatedServer(int playerCount, int levelCount, long seed) {
+		this.server = mock(MinecraftServer.class, stubOnly());
+		PlayerList playerList = mock(PlayerList.class, stubOnly());
+		ServerGamePacketListenerImpl connection = mock(ServerGamePacketListenerImpl.class, stubOnly().defaultAnswer(invocation -> {
+			if (invocation.getMethod().getName().equals("send")) {
+				packetsSent.increment();
+			}
+			return null;
+		}));
+
+		List<ServerLevel> levels = new ArrayList<>();
+		for (int i = 0; i < Math.max(1, levelCount); i++) {
+			ServerLevel level = mock(ServerLevel.class, stubOnly().name(LEVEL_NAMES[i % LEVEL_NAMES.length] + "-" + i));
+			when(level.getServer()).thenReturn(server);
+			levels.add(level);
+		}
+
+		SplittableRandom random = new SplittableRandom(seed);
+		List<ServerPlayer> created = new ArrayList<>(playerCount);
+		for (int i = 0; i < playerCount; i++) {
+			ServerLevel level = random.nextInt(10) < 7 ? levels.get(0) : levels.get(random.nextInt(levels.size()));
+			created.add(player(i, level, position(random), connection));
+		}
+		this.players = Collections.unmodifiableList(created);
+
+		when(server.getPlayerList()).thenReturn(playerList);
+		when(server.getMotd()).thenReturn("NextgenChat load test");
+		when(server.getTickCount()).thenAnswer(invocation -> tickCount);
+		when(playerList.getPlayers()).thenReturn(players);
+		when(playerList.getPlayerCount()).thenReturn(playerCount);
+		when(playerList.getMaxPlayers()).thenReturn(playerCount);
+	}
+
+	MinecraftServer server() {
+		return server;
+	}
+
+	List<ServerPlayer> players() {
+		return players;
+	}
+
+	long packetsSent() {
+		return packetsSent.sum();
+	}
+
+	void tick() {
+		tickCount++;
+	}
+
+	/**
+	 * Half the players gather around one of five hotspots within 200 blocks of spawn, the rest are
+	 * scattered over a 6000 block square.
+	 */
+	private static Vec3 position(SplittableRandom random) {
+		if (random.nextBoolean()) {
+			double hotspotX = (random.nextInt(5) - 2) * 80.0;
+			double hotspotZ = (random.nextInt(5) - 2) * 80.0;
+			return new Vec3(hotspotX + random.nextDouble(-40, 40), 64 + random.nextDouble(-8, 8), hotspotZ + random.nextDouble(-40, 40));
+		}
+		return new Vec3(random.nextDouble(-3000, 3000), 64 + random.nextDouble(-30, 30), random.nextDouble(-3000, 3000));
+	}
+
+	private static ServerPlayer player(int index, ServerLevel level, Vec3 position, ServerGamePacketListenerImpl connection) {
+		ServerPlayer player = mock(ServerPlayer.class, stubOnly());
+		Component name = Component.literal("Player" + index);
+		when(player.getUUID()).thenReturn(new UUID(0xC0FFEEL, index));
+		when(player.getName()).thenReturn(name);
+		when(player.getDisplayName()).thenReturn(name);
+		when(player.level()).thenReturn(level);
+		when(player.position()).thenReturn(position);
+		when(player.getX()).thenReturn(position.x);
+		when(player.getY()).thenReturn(position.y);
+		when(player.getZ()).thenReturn(position.z);
+		when(player.getChatVisibility()).thenReturn(ChatVisiblity.FULL);
+		player.connection = connection;
+		return player;
+	}
+
+	private static MockSettings stubOnly() {
+		return withSettings().stubOnly();
+	}
+}
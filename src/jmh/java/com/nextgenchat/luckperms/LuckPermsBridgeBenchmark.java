@@ -0,0 +1,75 @@
+package com.nextgenchat.luckperms;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The bridge's cached {@code MethodHandle} path against the per-call {@code getMethods()} scan and
+ * {@code Method.invoke} it replaced, both calling the same {@link StubLuckPerms} provider. The stub's
+ * own proxy dispatch is in both numbers, so the difference is the bridge's overhead.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LuckPermsBridgeBenchmark {
+	private static final String NODE = "nextgenchat.chat.global";
+
+	private LuckPermsBridge bridge;
+	private UUID playerId;
+
+	@Setup
+	public void setup() {
+		new StubLuckPerms(Set.of(NODE), "&7[Игрок] ").register();
+		bridge = new LuckPermsBridge(true);
+		playerId = UUID.randomUUID();
+	}
+
+	@Benchmark
+	public boolean hasPermissionHandles() {
+		return bridge.hasPermission(playerId, NODE);
+	}
+
+	@Benchmark
+	public PlayerMeta buildMetaHandles() {
+		return bridge.buildMeta("Steve", "Steve", playerId);
+	}
+
+	@Benchmark
+	public boolean hasPermissionLegacyReflection() throws ReflectiveOperationException {
+		Object api = Class.forName("net.luckperms.api.LuckPermsProvider").getMethod("get").invoke(null);
+		Object user = invoke(invoke(api, "getUserManager"), "getUser", playerId);
+		Object cachedData = invoke(user, "getCachedData");
+		Object permissionData = invoke(cachedData, "getPermissionData");
+		Object result = invoke(permissionData, "checkPermission", NODE);
+		return (boolean) result.getClass().getMethod("asBoolean").invoke(result);
+	}
+
+	/**
+	 * Copy of the lookup the bridge used before it resolved handles up front.
+	 */
+	private static Object invoke(Object target, String methodName, Object... args) throws ReflectiveOperationException {
+		for (Method method : target.getClass().getMethods()) {
+			if (!method.getName().equals(methodName) || method.getParameterCount() != args.length) {
+				continue;
+			}
+
+			try {
+				return method.invoke(target, args);
+			} catch (IllegalArgumentException ignored) {
+				// Try next overload
+			}
+		}
+
+		throw new NoSuchMethodException(target.getClass().getName() + "#" + methodName);
+	}
+}
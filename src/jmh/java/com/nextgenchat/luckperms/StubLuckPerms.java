@@ -0,0 +1,123 @@
+package com.nextgenchat.luckperms;
+
+import net.luckperms.api.LuckPerms;
+import net.luckperms.api.LuckPermsProvider;
+import net.luckperms.api.cacheddata.CachedDataManager;
+import net.luckperms.api.cacheddata.CachedMetaData;
+import net.luckperms.api.cacheddata.CachedPermissionData;
+import net.luckperms.api.event.EventBus;
+import net.luckperms.api.model.user.User;
+import net.luckperms.api.model.user.UserManager;
+import net.luckperms.api.util.Tristate;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+
+/**
+ * In-process LuckPerms provider for benchmarks and the load harness: every user exists, belongs to
+ * one group and carries a fixed prefix; permission checks are answered by a predicate. Only the API
+ * methods the bridge calls are implemented; anything else throws.
+ */
+public final class StubLuckPerms {
+	private final BiPredicate<UUID, String> permissions;
+	private final String prefix;
+	private final Map<UUID, User> users = new ConcurrentHashMap<>();
+	private final LuckPerms api;
+
+	public StubLuckPerms(Set<String> grantedNodes, String prefix) {
+		this((playerId, node) -> grantedNodes.contains(node), prefix);
+	}
+
+	public StubLuckPerms(BiPredicate<UUID, String> permissions, String prefix) {
+		this.permissions = permissions;
+		this.prefix = prefix;
+
+		UserManager userManager = stub(UserManager.class, (method, args) -> switch (method.getName()) {
+			case "getUser" -> args[0] instanceof UUID id ? users.computeIfAbsent(id, this::user) : null;
+			case "isLoaded" -> true;
+			default -> unsupported(method);
+		});
+		EventBus eventBus = stub(EventBus.class, (method, args) -> switch (method.getName()) {
+			case "subscribe" -> null;
+			default -> unsupported(method);
+		});
+		this.api = stub(LuckPerms.class, (method, args) -> switch (method.getName()) {
+			case "getUserManager" -> userManager;
+			case "getEventBus" -> eventBus;
+			case "getServerName" -> "stub";
+			default -> unsupported(method);
+		});
+	}
+
+	public LuckPerms api() {
+		return api;
+	}
+
+	/**
+	 * Installs this stub as the provider returned by {@code LuckPermsProvider.get()}, the same way
+	 * the LuckPerms plugin registers itself.
+	 */
+	public StubLuckPerms register() {
+		try {
+			Method register = LuckPermsProvider.class.getDeclaredMethod("register", LuckPerms.class);
+			register.setAccessible(true);
+			register.invoke(null, api);
+			return this;
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Failed to register stub LuckPerms provider", e);
+		}
+	}
+
+	private User user(UUID id) {
+		CachedPermissionData permissionData = stub(CachedPermissionData.class, (method, args) -> switch (method.getName()) {
+			case "checkPermission" -> permissions.test(id, (String) args[0]) ? Tristate.TRUE : Tristate.UNDEFINED;
+			default -> unsupported(method);
+		});
+		CachedMetaData metaData = stub(CachedMetaData.class, (method, args) -> switch (method.getName()) {
+			case "getPrefix" -> prefix;
+			case "getSuffix" -> null;
+			case "getPrimaryGroup" -> "default";
+			default -> unsupported(method);
+		});
+		CachedDataManager cachedData = stub(CachedDataManager.class, (method, args) -> switch (method.getName()) {
+			case "getPermissionData" -> permissionData;
+			case "getMetaData" -> metaData;
+			default -> unsupported(method);
+		});
+		return stub(User.class, (method, args) -> switch (method.getName()) {
+			case "getUniqueId" -> id;
+			case "getUsername" -> "Player-" + id.toString().substring(0, 8);
+			case "getPrimaryGroup" -> "default";
+			case "getCachedData" -> cachedData;
+			default -> unsupported(method);
+		});
+	}
+
+	private static <T> T stub(Class<T> type, Handler handler) {
+		Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (self, method, args) -> {
+			if (method.getDeclaringClass() == Object.class) {
+				return switch (method.getName()) {
+					case "hashCode" -> System.identityHashCode(self);
+					case "equals" -> self == args[0];
+					default -> type.getSimpleName() + "Stub";
+				};
+			}
+			return handler.handle(method, args != null ? args : new Object[0]);
+		});
+		return type.cast(proxy);
+	}
+
+	private static Object unsupported(Method method) {
+		throw new UnsupportedOperationException("Stub LuckPerms does not implement " + method.getName());
+	}
+
+	@FunctionalInterface
+	private interface Handler {
+		Object handle(Method method, Object[] args);
+	}
+}
@@ -0,0 +1,176 @@
+package com.nextgenchat.moderation;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.nextgenchat.config.NextgenChatConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * {@link ModerationService#isMuted} for muted and unmuted players, and the cost of persisting a
+ * burst of mutes: the journal (caller-side enqueue, then a full flush and compaction) against
+ * rewriting the whole mute file on every change as the mod did before.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ModerationBenchmark {
+	private static final Gson LEGACY_GSON = new GsonBuilder().setPrettyPrinting().create();
+
+	@State(Scope.Benchmark)
+	public static class Lookup {
+		@Param({"1000"})
+		public int mutes;
+
+		ModerationService moderation;
+		Path dataDir;
+		UUID[] muted;
+		UUID[] notMuted;
+
+		@Setup
+		public void setup() throws IOException {
+			dataDir = Files.createTempDirectory("nextgenchat-bench");
+			List<ModerationService.MuteData> snapshot = new ArrayList<>();
+			muted = new UUID[mutes];
+			notMuted = new UUID[mutes];
+			for (int i = 0; i < mutes; i++) {
+				muted[i] = UUID.randomUUID();
+				notMuted[i] = UUID.randomUUID();
+				snapshot.add(muteData(muted[i], i));
+			}
+			writeLegacy(dataDir.resolve("nextgenchat_mutes.json"), snapshot);
+			moderation = new ModerationService(new NextgenChatConfig(), null, dataDir);
+		}
+
+		@TearDown
+		public void tearDown() throws IOException {
+			moderation.shutdown();
+			deleteRecursively(dataDir);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Cursor {
+		int next;
+	}
+
+	@Benchmark
+	public boolean isMutedHit(Lookup lookup, Cursor cursor) {
+		UUID playerId = lookup.muted[cursor.next];
+		cursor.next = (cursor.next + 1) % lookup.muted.length;
+		return lookup.moderation.isMuted(playerId);
+	}
+
+	@Benchmark
+	public boolean isMutedMiss(Lookup lookup, Cursor cursor) {
+		UUID playerId = lookup.notMuted[cursor.next];
+		cursor.next = (cursor.next + 1) % lookup.notMuted.length;
+		return lookup.moderation.isMuted(playerId);
+	}
+
+	@State(Scope.Thread)
+	public static class Persistence {
+		@Param({"64"})
+		public int burst;
+
+		Path dataDir;
+		MuteJournal journal;
+		Map<UUID, ModerationService.MuteData> live;
+		List<ModerationService.MuteData> pending;
+
+		@Setup(Level.Invocation)
+		public void setup() throws IOException {
+			dataDir = Files.createTempDirectory("nextgenchat-bench");
+			live = new ConcurrentHashMap<>();
+			journal = new MuteJournal(dataDir.resolve("nextgenchat_mutes.json"), () -> List.copyOf(live.values()));
+			journal.start();
+			pending = new ArrayList<>(burst);
+			for (int i = 0; i < burst; i++) {
+				pending.add(muteData(UUID.randomUUID(), i));
+			}
+		}
+
+		@TearDown(Level.Invocation)
+		public void tearDown() throws IOException {
+			journal.close(10_000L);
+			deleteRecursively(dataDir);
+		}
+	}
+
+	/**
+	 * What a command thread pays per mute: an enqueue.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void journalRecord(Persistence persistence) {
+		for (ModerationService.MuteData muteData : persistence.pending) {
+			persistence.live.put(muteData.playerUUID, muteData);
+			persistence.journal.recordMute(muteData);
+		}
+	}
+
+	/**
+	 * End to end, including the writer's fsyncs and the final compaction.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void journalRecordAndFlush(Persistence persistence) {
+		journalRecord(persistence);
+		persistence.journal.close(10_000L);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void legacyRewritePerMute(Persistence persistence) throws IOException {
+		Path file = persistence.dataDir.resolve("legacy_mutes.json");
+		for (ModerationService.MuteData muteData : persistence.pending) {
+			persistence.live.put(muteData.playerUUID, muteData);
+			writeLegacy(file, persistence.live.values());
+		}
+	}
+
+	private static ModerationService.MuteData muteData(UUID playerId, int index) {
+		return new ModerationService.MuteData(playerId, "Player" + index, ModerationService.CONSOLE_ACTOR_ID, "Console",
+			System.currentTimeMillis(), TimeUnit.DAYS.toMillis(7), "Спам в чате");
+	}
+
+	private static void writeLegacy(Path file, Iterable<ModerationService.MuteData> mutes) throws IOException {
+		List<ModerationService.MuteData> copy = new ArrayList<>();
+		mutes.forEach(copy::add);
+		try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			LEGACY_GSON.toJson(copy, out);
+		}
+	}
+
+	private static void deleteRecursively(Path dir) throws IOException {
+		try (Stream<Path> paths = Files.walk(dir)) {
+			for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+				Files.deleteIfExists(path);
+			}
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package com.nextgenchat.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One server tick of scheduling work: a few tasks scheduled with random delays, one of them
+ * cancelled, then the clock advanced and due tasks run. {@code maxDelayTicks} sets how many tasks
+ * are pending in steady state; delays past the wheel size exercise the later-rotation path.
+ * {@code heap} does the same with a {@link PriorityQueue} ordered by deadline, the usual
+ * alternative to a timing wheel, cancelling lazily as the wheel does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TickSchedulerBenchmark {
+	private static final int TASKS_PER_TICK = 4;
+	private static final int DELAYS = 4096;
+
+	@Param({"200", "20000"})
+	public int maxDelayTicks;
+
+	private long fired;
+	private final Runnable action = () -> fired++;
+	private int[] delays;
+	private int nextDelay;
+	private long wheelTick;
+	private long heapTick;
+
+	private TickScheduler scheduler;
+	private PriorityQueue<HeapTask> heap;
+
+	@Setup
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(42);
+		delays = new int[DELAYS];
+		for (int i = 0; i < delays.length; i++) {
+			delays[i] = 1 + random.nextInt(maxDelayTicks);
+		}
+
+		scheduler = new TickScheduler();
+		heap = new PriorityQueue<>(Comparator.comparingLong(task -> task.deadline));
+		// Fill both to their steady-state size before measuring.
+		for (int i = 0; i < maxDelayTicks; i++) {
+			wheel();
+			heap();
+		}
+	}
+
+	@Benchmark
+	public long wheel() {
+		TickScheduler.Task last = null;
+		for (int i = 0; i < TASKS_PER_TICK; i++) {
+			last = scheduler.schedule(nextDelay(), action);
+		}
+		last.cancel();
+		scheduler.tick(++wheelTick);
+		return fired;
+	}
+
+	@Benchmark
+	public long heap() {
+		HeapTask last = null;
+		for (int i = 0; i < TASKS_PER_TICK; i++) {
+			last = new HeapTask(heapTick + nextDelay(), action);
+			heap.add(last);
+		}
+		last.cancelled = true;
+
+		long now = ++heapTick;
+		while (!heap.isEmpty() && heap.peek().deadline <= now) {
+			HeapTask task = heap.poll();
+			if (!task.cancelled) {
+				task.action.run();
+			}
+		}
+		return fired;
+	}
+
+	private int nextDelay() {
+		int delay = delays[nextDelay];
+		nextDelay = (nextDelay + 1) % delays.length;
+		return delay;
+	}
+
+	private static final class HeapTask {
+		private final long deadline;
+		private final Runnable action;
+		private boolean cancelled;
+
+		private HeapTask(long deadline, Runnable action) {
+			this.deadline = deadline;
+			this.action = action;
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package com.nextgenchat.util;
+
+import net.minecraft.network.chat.Component;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Classification of a realistic mix of {@code broadcastSystemMessage} traffic: mostly deaths and
+ * advancements, some mod broadcasts, a few join/quit lines. {@code legacyRegex} is the flattened
+ * text against seven regexes that the filter used before.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VanillaMessageFilterBenchmark {
+	private static final Pattern[] LEGACY_PATTERNS = {
+		Pattern.compile("^.+ joined the game$"),
+		Pattern.compile("^.+ left the game$"),
+		Pattern.compile("^.+ присоединился к серверу$"),
+		Pattern.compile("^.+ покинул сервер$"),
+		Pattern.compile("^.+ зашел на сервер$"),
+		Pattern.compile("^.+ вышел с сервера$"),
+		Pattern.compile("^.+ lost connection: .+$"),
+	};
+
+	private Component[] messages;
+	private int next;
+
+	@Setup
+	public void setup() {
+		Component steve = Component.literal("Steve");
+		Component zombie = Component.literal("Zombie");
+		messages = new Component[] {
+			Component.translatable("death.attack.mob", steve, zombie),
+			Component.translatable("death.fell.accident.generic", steve),
+			Component.translatable("death.attack.lava", steve),
+			Component.translatable("chat.type.advancement.task", steve, Component.literal("[Stone Age]")),
+			Component.translatable("chat.type.advancement.goal", steve, Component.literal("[Hot Stuff]")),
+			Component.translatable("death.attack.player", steve, Component.literal("Alex")),
+			Component.literal("§6[Рестарт] §fСервер перезагрузится через 5 минут"),
+			Component.literal("§a[Аукцион] §fAlex выставил алмазный меч за 500$"),
+			Component.translatable("multiplayer.player.joined", steve),
+			Component.translatable("multiplayer.player.left", steve),
+			Component.literal("Alex joined the game"),
+			Component.translatable("commands.save.success"),
+		};
+	}
+
+	@Benchmark
+	public boolean structural() {
+		return VanillaMessageFilter.isVanillaJoinOrQuit(nextMessage());
+	}
+
+	@Benchmark
+	public boolean legacyRegex() {
+		String plain = nextMessage().getString();
+		for (Pattern pattern : LEGACY_PATTERNS) {
+			if (pattern.matcher(plain).matches()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Component nextMessage() {
+		Component message = messages[next];
+		next = (next + 1) % messages.length;
+		return message;
+	}
+}
@@ -1,18 +1,36 @@
 package com.nextgenchat;
 
 import com.mojang.brigadier.Command;
+import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.nextgenchat.broadcast.BroadcastService;
 import com.nextgenchat.chat.AntiSpamService;
+import com.nextgenchat.chat.ChatChannel;
+import com.nextgenchat.chat.ChatHistory;
+import com.nextgenchat.chat.ChatPipeline;
 import com.nextgenchat.chat.ChatService;
 import com.nextgenchat.command.HelpService;
+import com.nextgenchat.command.HistoryReport;
+import com.nextgenchat.command.StatsReport;
+import com.nextgenchat.config.ConfigWatcher;
 import com.nextgenchat.config.NextgenChatConfig;
+import com.nextgenchat.format.ModerationFormatContext;
+import com.nextgenchat.format.PlayerFormatContext;
+import com.nextgenchat.log.ChatLog;
 import com.nextgenchat.luckperms.LuckPermsBridge;
+import com.nextgenchat.luckperms.PlayerMeta;
 import com.nextgenchat.moderation.ModerationService;
 import com.nextgenchat.permission.PermissionService;
+import com.nextgenchat.relay.ChatRelay;
+import com.nextgenchat.stats.ChatStats;
+import com.nextgenchat.stats.TickTracker;
+import com.nextgenchat.util.ChatFanout;
 import com.nextgenchat.util.TextUtils;
+import com.nextgenchat.util.TickScheduler;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
+import net.fabricmc.fabric.api.entity.event.v1.ServerEntityWorldChangeEvents;
+import net.fabricmc.fabric.api.entity.event.v1.ServerPlayerEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
@@ -20,11 +38,14 @@ import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.commands.arguments.EntityArgument;
 import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 import static net.minecraft.commands.Commands.argument;
 import static net.minecraft.commands.Commands.literal;
@@ -41,10 +62,15 @@ public class NextgenChatMod implements ModInitializer {
 	private ModerationService moderation;
 	private AntiSpamService antiSpam;
 	private ChatService chat;
+	private ChatPipeline chatPipeline;
 	private BroadcastService broadcast;
+	private ChatRelay relay;
+	private ChatLog chatLog;
+	private final TickScheduler scheduler = new TickScheduler();
+	private TickTracker ticks;
+	private ConfigWatcher configWatcher;
 
 	private long serverStartedAtMs;
-	private final ConcurrentLinkedQueue<DelayedMessage> delayedMessages = new ConcurrentLinkedQueue<>();
 
 	@Override
 	public void onInitialize() {
@@ -56,7 +82,24 @@ public class NextgenChatMod implements ModInitializer {
 		moderation = new ModerationService(config, permissions);
 		antiSpam = new AntiSpamService(config, permissions);
 		chat = new ChatService(config, permissions, moderation, antiSpam, luckPerms);
-		broadcast = new BroadcastService(config);
+		chatPipeline = new ChatPipeline(config, chat);
+		permissions.setRecalculationListener(playerId -> chat.channels().recalculate(playerId));
+		ticks = new TickTracker(config.timing.ticksPerSecond);
+		broadcast = new BroadcastService(config, scheduler, ticks);
+		relay = new ChatRelay(config, moderation);
+		chat.setGlobalListener(relay::publishChat);
+		broadcast.setBroadcastListener(relay::publishBroadcast);
+		moderation.setMuteListener(new ModerationService.MuteListener() {
+			@Override
+			public void onMute(ModerationService.MuteData muteData) {
+				relay.publishMute(muteData);
+			}
+
+			@Override
+			public void onUnmute(UUID playerId) {
+				relay.publishUnmute(playerId);
+			}
+		});
 
 		registerLifecycleEvents();
 		registerConnectionEvents();
@@ -89,10 +132,22 @@ public class NextgenChatMod implements ModInitializer {
 		return chat;
 	}
 
+	public ChatPipeline chatPipeline() {
+		return chatPipeline;
+	}
+
 	public BroadcastService broadcast() {
 		return broadcast;
 	}
 
+	public TickScheduler scheduler() {
+		return scheduler;
+	}
+
+	public TickTracker ticks() {
+		return ticks;
+	}
+
 	public String version() {
 		return FabricLoader.getInstance().getModContainer(MOD_ID)
 			.map(container -> container.getMetadata().getVersion().getFriendlyString())
@@ -102,64 +157,165 @@ public class NextgenChatMod implements ModInitializer {
 	private void registerLifecycleEvents() {
 		ServerLifecycleEvents.SERVER_STARTED.register(server -> {
 			serverStartedAtMs = System.currentTimeMillis();
-			broadcast.reset();
+			broadcast.start(server, serverStartedAtMs);
+			chat.channels().configure(server, config.snapshot().channels);
+			relay.start();
+			startChatLog();
+			updateConfigWatcher(server);
 			LOGGER.info("NextgenChat ready on server");
 		});
 
-		ServerTickEvents.END_SERVER_TICK.register(server -> {
-			processDelayedMessages(server.getPlayerList()::broadcastSystemMessage);
+		ServerLifecycleEvents.SERVER_STOPPING.register(server -> {
+			stopConfigWatcher();
+			relay.stop();
+			stopChatLog();
+			broadcast.stop();
+			scheduler.clear();
+			permissions.shutdown();
+			luckPerms.shutdown();
+			chatPipeline.shutdown();
+			moderation.shutdown();
+		});
 
-			if (serverStartedAtMs > 0) {
-				broadcast.tick(server, serverStartedAtMs);
-			}
+		ServerTickEvents.START_SERVER_TICK.register(server -> ticks.onTickStart());
+
+		ServerTickEvents.END_SERVER_TICK.register(server -> {
+			chat.trackPlayers(server);
+			chatPipeline.flush();
+			scheduler.tick(server.getTickCount());
+			relay.tick(server);
 
 			if (server.getTickCount() % config.timing.muteCleanupIntervalTicks == 0) {
 				moderation.cleanupExpiredMutes();
 			}
+			ticks.onTickEnd();
 		});
 	}
 
+	/**
+	 * Reloads the config file and rebuilds only what the changed sections affect. Runs on the
+	 * server thread.
+	 */
+	private void reloadConfig(MinecraftServer server) {
+		Set<NextgenChatConfig.Section> changed = config.load();
+		if (changed.isEmpty()) {
+			return;
+		}
+
+		LOGGER.info("NextgenChat config sections changed: {}", changed);
+		if (changed.contains(NextgenChatConfig.Section.CHAT)
+			&& Math.max(1, config.chat.validationThreads) != chatPipeline.validationThreads()) {
+			LOGGER.warn("chat.validationThreads changed to {}, still using {} until the server restarts",
+				config.chat.validationThreads, chatPipeline.validationThreads());
+		}
+		if (changed.contains(NextgenChatConfig.Section.PERMISSIONS)) {
+			permissions.clearAll();
+		}
+		if (changed.contains(NextgenChatConfig.Section.PERMISSIONS) || changed.contains(NextgenChatConfig.Section.CHANNELS)) {
+			chat.channels().configure(server, config.snapshot().channels);
+		}
+		if (changed.contains(NextgenChatConfig.Section.TIMING)) {
+			ticks.setTicksPerSecond(config.timing.ticksPerSecond);
+		}
+		if (changed.contains(NextgenChatConfig.Section.AUTO_BROADCAST) || changed.contains(NextgenChatConfig.Section.TIMING)) {
+			broadcast.start(server, serverStartedAtMs);
+		}
+		if (changed.contains(NextgenChatConfig.Section.HISTORY)) {
+			chat.history().resize(ChatService.historyCapacity(config));
+		}
+		if (changed.contains(NextgenChatConfig.Section.CHAT_LOG)) {
+			startChatLog();
+		}
+		if (changed.contains(NextgenChatConfig.Section.RELAY)) {
+			relay.start();
+		}
+		if (changed.contains(NextgenChatConfig.Section.RELOAD)) {
+			updateConfigWatcher(server);
+		}
+	}
+
+	private void startChatLog() {
+		stopChatLog();
+		if (!config.chatLog.enableChatLog) {
+			return;
+		}
+
+		chatLog = new ChatLog(config.chatLog, FabricLoader.getInstance().getGameDir());
+		chatLog.start();
+		chat.setChatLog(chatLog);
+	}
+
+	private void stopChatLog() {
+		if (chatLog != null) {
+			chat.setChatLog(null);
+			chatLog.stop();
+			chatLog = null;
+		}
+	}
+
+	private void updateConfigWatcher(MinecraftServer server) {
+		stopConfigWatcher();
+		if (!config.reload.enableHotReload) {
+			return;
+		}
+
+		configWatcher = new ConfigWatcher(NextgenChatConfig.path(), config.reload.hotReloadDebounceMs,
+			() -> server.execute(() -> reloadConfig(server)));
+		configWatcher.start();
+	}
+
+	private void stopConfigWatcher() {
+		if (configWatcher != null) {
+			configWatcher.stop();
+			configWatcher = null;
+		}
+	}
+
 	private void registerConnectionEvents() {
 		ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> {
+			ServerPlayer player = handler.getPlayer();
+			warmPlayer(player);
+			chat.channels().join(player);
 			if (!config.notifications.enableJoinMessages) {
 				return;
 			}
 
-			ServerPlayer player = handler.getPlayer();
-			String message = luckPerms.replacePlaceholders(
-				config.notifications.joinMessage.replace("{player}", player.getName().getString()),
-				player
-			);
-			delayedMessages.offer(new DelayedMessage(TextUtils.toComponent(message), config.timing.joinMessageDelayTicks));
+			// Rendered when due, by which time the warm-up has usually filled the meta cache.
+			scheduler.schedule(config.timing.joinMessageDelayTicks, () -> {
+				Component message = config.formats().join.renderComponent(new PlayerFormatContext(luckPerms.peekMeta(player)));
+				ChatFanout.sendToAll(server, message);
+			});
 		});
 
 		ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
 			ServerPlayer player = handler.getPlayer();
+			chatPipeline.onPlayerDisconnect(player.getUUID());
 			chat.onPlayerDisconnect(player);
+			PlayerMeta meta = luckPerms.peekMeta(player);
+			luckPerms.clearMeta(player.getUUID());
 
 			if (!config.notifications.enableQuitMessages) {
 				return;
 			}
 
-			String message = luckPerms.replacePlaceholders(
-				config.notifications.quitMessage.replace("{player}", player.getName().getString()),
-				player
-			);
-			delayedMessages.offer(new DelayedMessage(TextUtils.toComponent(message), config.timing.quitMessageDelayTicks));
+			Component message = config.formats().quit.renderComponent(new PlayerFormatContext(meta));
+			scheduler.schedule(config.timing.quitMessageDelayTicks, () -> ChatFanout.sendToAll(server, message));
 		});
-	}
 
-	private void processDelayedMessages(BroadcastConsumer consumer) {
-		DelayedMessage current;
-		while ((current = delayedMessages.peek()) != null) {
-			if (current.ticksRemaining > 0) {
-				current.ticksRemaining--;
-				break;
-			}
+		ServerEntityWorldChangeEvents.AFTER_PLAYER_CHANGE_WORLD.register((player, origin, destination) ->
+			chat.channels().moved(player));
+		ServerPlayerEvents.AFTER_RESPAWN.register((oldPlayer, newPlayer, alive) ->
+			chat.channels().moved(newPlayer));
+	}
 
-			delayedMessages.poll();
-			consumer.broadcast(current.message, false);
-		}
+	/**
+	 * Loads everything a player's first chat message needs in the background, so that a wave of
+	 * rejoins after a restart does not make each first message pay for it.
+	 */
+	private void warmPlayer(ServerPlayer player) {
+		permissions.warm(player);
+		luckPerms.warmMeta(player);
+		antiSpam.warm(player.getUUID());
 	}
 
 	private void registerCommands() {
@@ -176,16 +332,16 @@ public class NextgenChatMod implements ModInitializer {
 				.then(literal("reload")
 					.requires(source -> canReload(source))
 					.executes(ctx -> {
-						config.load();
-						permissions.clearAll();
-						ctx.getSource().sendSuccess(() -> TextUtils.toComponent(config.commandMessages.reloadSuccess), false);
+						reloadConfig(ctx.getSource().getServer());
+						ctx.getSource().sendSuccess(() -> TextUtils.cached(config.commandMessages.reloadSuccess), false);
 						return Command.SINGLE_SUCCESS;
 					}))
 				.then(literal("permissions")
 					.requires(source -> canManagePermissions(source))
 					.then(literal("reload").executes(ctx -> {
 						permissions.clearAll();
-						ctx.getSource().sendSuccess(() -> TextUtils.toComponent(config.commandMessages.permissionsCacheCleared), false);
+						chat.channels().configure(ctx.getSource().getServer(), config.snapshot().channels);
+						ctx.getSource().sendSuccess(() -> TextUtils.cached(config.commandMessages.permissionsCacheCleared), false);
 						return Command.SINGLE_SUCCESS;
 					}))
 					.then(literal("status").executes(ctx -> {
@@ -196,16 +352,40 @@ public class NextgenChatMod implements ModInitializer {
 						ctx.getSource().sendSuccess(() -> TextUtils.toComponent(message), false);
 						return Command.SINGLE_SUCCESS;
 					})))
+				.then(literal("stats")
+					.requires(source -> canViewStats(source))
+					.executes(ctx -> {
+						StatsReport.send(ctx.getSource(), ticks);
+						return Command.SINGLE_SUCCESS;
+					})
+					.then(literal("reset").executes(ctx -> {
+						ChatStats.reset();
+						ctx.getSource().sendSuccess(() -> TextUtils.cached(config.commandMessages.statsReset), false);
+						return Command.SINGLE_SUCCESS;
+					})))
+				.then(literal("history")
+					.requires(source -> canViewHistory(source))
+					.then(argument("player", StringArgumentType.word())
+						.executes(ctx -> executeHistory(ctx.getSource(), StringArgumentType.getString(ctx, "player")))))
+				.then(literal("search")
+					.requires(source -> canViewHistory(source))
+					.then(argument("query", StringArgumentType.greedyString())
+						.executes(ctx -> {
+							String query = StringArgumentType.getString(ctx, "query");
+							HistoryReport.sendSearch(ctx.getSource(), query, chat.history().search(query, config.history.maxResults));
+							return Command.SINGLE_SUCCESS;
+						})))
 				.then(literal("broadcast")
 					.requires(source -> canBroadcast(source))
 					.executes(ctx -> {
 						boolean sent = broadcast.sendNext(ctx.getSource().getServer(), serverStartedAtMs);
 						String message = sent ? config.commandMessages.broadcastSent : config.commandMessages.broadcastDisabled;
-						ctx.getSource().sendSuccess(() -> TextUtils.toComponent(message), false);
+						ctx.getSource().sendSuccess(() -> TextUtils.cached(message), false);
 						return Command.SINGLE_SUCCESS;
 					})
 					.then(literal("toggle").executes(ctx -> {
 						config.autoBroadcast.enableAutoBroadcast = !config.autoBroadcast.enableAutoBroadcast;
+						config.publish();
 						String status = config.autoBroadcast.enableAutoBroadcast
 							? config.commandMessages.statusEnabled
 							: config.commandMessages.statusDisabled;
@@ -251,24 +431,57 @@ public class NextgenChatMod implements ModInitializer {
 				.executes(ctx -> {
 					var mutes = moderation.getActiveMutes();
 					if (mutes.isEmpty()) {
-						ctx.getSource().sendSuccess(() -> TextUtils.toComponent(config.commandMessages.noMutedPlayers), false);
+						ctx.getSource().sendSuccess(() -> TextUtils.cached(config.commandMessages.noMutedPlayers), false);
 						return Command.SINGLE_SUCCESS;
 					}
 
-					ctx.getSource().sendSuccess(() -> TextUtils.toComponent(config.commandMessages.mutedPlayersHeader), false);
+					ctx.getSource().sendSuccess(() -> TextUtils.cached(config.commandMessages.mutedPlayersHeader), false);
 					for (ModerationService.MuteData muteData : mutes) {
 						long remaining = muteData.expiresAt() - System.currentTimeMillis();
-						String line = config.commandMessages.mutedPlayerEntry
-							.replace("{player}", muteData.playerName)
-							.replace("{reason}", muteData.reason)
-							.replace("{remaining}", moderation.formatDuration(remaining));
+						String line = config.formats().mutedPlayerEntry.render(new ModerationFormatContext(
+							muteData.playerName, null, muteData.reason, moderation.formatDuration(remaining)));
 						ctx.getSource().sendSuccess(() -> TextUtils.toComponent(line), false);
 					}
 					return Command.SINGLE_SUCCESS;
 				}));
+
+			registerChannelCommands(dispatcher);
 		});
 	}
 
+	/**
+	 * One command per channel that defines one. Commands are fixed once registered; the channel is
+	 * looked up by id on every use, so a reload still changes its format and permission.
+	 */
+	private void registerChannelCommands(CommandDispatcher<CommandSourceStack> dispatcher) {
+		for (ChatChannel channel : config.snapshot().channels) {
+			if (channel.command().isEmpty()) {
+				continue;
+			}
+
+			String channelId = channel.id();
+			dispatcher.register(literal(channel.command())
+				.then(argument("message", StringArgumentType.greedyString())
+					.executes(ctx -> executeChannelMessage(ctx.getSource(), channelId, StringArgumentType.getString(ctx, "message")))));
+		}
+	}
+
+	private int executeChannelMessage(CommandSourceStack source, String channelId, String message) {
+		if (!(source.getEntity() instanceof ServerPlayer player)) {
+			source.sendFailure(TextUtils.cached(config.commandMessages.playersOnly));
+			return 0;
+		}
+
+		ChatChannel channel = config.snapshot().channel(channelId);
+		if (channel == null) {
+			source.sendFailure(TextUtils.cached(config.commandMessages.chatDisabled));
+			return 0;
+		}
+
+		chatPipeline.submit(player, message, channel);
+		return Command.SINGLE_SUCCESS;
+	}
+
 	private int executeMute(CommandSourceStack source, ServerPlayer target, String duration, String reason) {
 		ModerationService.Actor actor = resolveActor(source);
 		if (actor == null) {
@@ -297,6 +510,16 @@ public class NextgenChatMod implements ModInitializer {
 		return moderation.unmutePlayer(target, actor) ? Command.SINGLE_SUCCESS : 0;
 	}
 
+	private int executeHistory(CommandSourceStack source, String playerName) {
+		ServerPlayer online = source.getServer().getPlayerList().getPlayerByName(playerName);
+		UUID playerId = online != null ? online.getUUID() : chat.history().findSender(playerName);
+		List<ChatHistory.Event> events = playerId != null
+			? chat.history().bySender(playerId, config.history.maxResults)
+			: List.of();
+		HistoryReport.sendHistory(source, playerName, events);
+		return Command.SINGLE_SUCCESS;
+	}
+
 	private ModerationService.Actor resolveActor(CommandSourceStack source) {
 		if (source.getEntity() instanceof ServerPlayer player) {
 			return ModerationService.Actor.fromPlayer(player);
@@ -305,7 +528,7 @@ public class NextgenChatMod implements ModInitializer {
 			return ModerationService.Actor.console();
 		}
 
-		source.sendFailure(TextUtils.toComponent(config.commandMessages.playersOnly));
+		source.sendFailure(TextUtils.cached(config.commandMessages.playersOnly));
 		return null;
 	}
 
@@ -329,35 +552,40 @@ public class NextgenChatMod implements ModInitializer {
 		return false;
 	}
 
-	private boolean canBroadcast(CommandSourceStack source) {
+	private boolean canViewStats(CommandSourceStack source) {
 		if (source.getEntity() == null) {
 			return true;
 		}
 		if (source.getEntity() instanceof ServerPlayer player) {
-			return permissions.canUseBroadcastCommand(player);
+			return permissions.canUseStatsCommand(player);
 		}
 		return false;
 	}
 
-	private boolean canViewMutes(CommandSourceStack source) {
-		if (!(source.getEntity() instanceof ServerPlayer player)) {
+	private boolean canViewHistory(CommandSourceStack source) {
+		if (source.getEntity() == null) {
 			return true;
 		}
-		return permissions.canViewMutes(player);
+		if (source.getEntity() instanceof ServerPlayer player) {
+			return permissions.canUseHistoryCommand(player);
+		}
+		return false;
 	}
 
-	@FunctionalInterface
-	private interface BroadcastConsumer {
-		void broadcast(Component message, boolean overlay);
+	private boolean canBroadcast(CommandSourceStack source) {
+		if (source.getEntity() == null) {
+			return true;
+		}
+		if (source.getEntity() instanceof ServerPlayer player) {
+			return permissions.canUseBroadcastCommand(player);
+		}
+		return false;
 	}
 
-	private static final class DelayedMessage {
-		private final Component message;
-		private int ticksRemaining;
-
-		private DelayedMessage(Component message, int ticksRemaining) {
-			this.message = message;
-			this.ticksRemaining = ticksRemaining;
+	private boolean canViewMutes(CommandSourceStack source) {
+		if (!(source.getEntity() instanceof ServerPlayer player)) {
+			return true;
 		}
+		return permissions.canViewMutes(player);
 	}
 }
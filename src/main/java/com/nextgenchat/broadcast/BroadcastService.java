@@ -1,97 +1,101 @@
 package com.nextgenchat.broadcast;
 
+import com.nextgenchat.config.ConfigSnapshot;
 import com.nextgenchat.config.NextgenChatConfig;
+import com.nextgenchat.format.BroadcastFormatContext;
+import com.nextgenchat.format.MessageTemplate;
+import com.nextgenchat.stats.ChatStats;
+import com.nextgenchat.stats.TickTracker;
+import com.nextgenchat.util.ChatFanout;
 import com.nextgenchat.util.TextUtils;
+import com.nextgenchat.util.TickScheduler;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.MinecraftServer;
 
+import java.util.List;
+import java.util.function.Consumer;
+
 public class BroadcastService {
 	private final NextgenChatConfig config;
-	private int tickCounter;
+	private final TickScheduler scheduler;
+	private final TickTracker ticks;
+	private TickScheduler.Task nextBroadcast;
 	private int currentIndex;
+	private Consumer<Component> broadcastListener;
 
-	public BroadcastService(NextgenChatConfig config) {
+	public BroadcastService(NextgenChatConfig config, TickScheduler scheduler, TickTracker ticks) {
 		this.config = config;
+		this.scheduler = scheduler;
+		this.ticks = ticks;
 	}
 
-	public void reset() {
-		tickCounter = 0;
-		currentIndex = 0;
+	/**
+	 * Notified of every broadcast sent here, for relaying to sibling servers.
+	 */
+	public void setBroadcastListener(Consumer<Component> listener) {
+		this.broadcastListener = listener;
 	}
 
-	public void tick(MinecraftServer server, long serverStartedAtMs) {
-		if (!config.autoBroadcast.enableAutoBroadcast || config.autoBroadcast.broadcastMessages.length == 0) {
-			return;
-		}
+	/**
+	 * Starts the auto-broadcast cadence. Each run re-arms itself with the interval from the current
+	 * config, so reloads and toggles take effect from the next broadcast on.
+	 */
+	public void start(MinecraftServer server, long serverStartedAtMs) {
+		stop();
+		currentIndex = 0;
+		scheduleNext(server, serverStartedAtMs);
+	}
 
-		tickCounter++;
-		int intervalTicks = config.autoBroadcast.broadcastInterval * config.timing.ticksPerSecond;
-		if (tickCounter < intervalTicks) {
-			return;
+	public void stop() {
+		if (nextBroadcast != null) {
+			nextBroadcast.cancel();
+			nextBroadcast = null;
 		}
+	}
 
-		sendNext(server, serverStartedAtMs);
-		tickCounter = 0;
+	private void scheduleNext(MinecraftServer server, long serverStartedAtMs) {
+		nextBroadcast = scheduler.schedule(config.snapshot().broadcast.intervalTicks(), () -> {
+			sendNext(server, serverStartedAtMs);
+			scheduleNext(server, serverStartedAtMs);
+		});
 	}
 
 	public boolean sendNext(MinecraftServer server, long serverStartedAtMs) {
-		if (!config.autoBroadcast.enableAutoBroadcast || config.autoBroadcast.broadcastMessages.length == 0) {
+		ConfigSnapshot snapshot = config.snapshot();
+		List<MessageTemplate<BroadcastFormatContext>> messages = snapshot.formats.broadcastMessages;
+		if (!snapshot.broadcast.enabled() || messages.isEmpty()) {
 			return false;
 		}
 
-		String message = pickMessage();
-		server.getPlayerList().broadcastSystemMessage(buildMessage(message, server, serverStartedAtMs), false);
+		MessageTemplate<BroadcastFormatContext> message = pickMessage(messages, snapshot.broadcast.randomize());
+		Component built = buildMessage(message, snapshot.broadcast.prefix(), server, serverStartedAtMs);
+		ChatFanout.sendToAll(server, built);
+		ChatStats.increment(ChatStats.Counter.BROADCASTS);
+		if (broadcastListener != null) {
+			broadcastListener.accept(built);
+		}
 		return true;
 	}
 
-	private String pickMessage() {
-		if (config.autoBroadcast.randomizeMessages) {
-			int index = (int) (Math.random() * config.autoBroadcast.broadcastMessages.length);
-			return config.autoBroadcast.broadcastMessages[index];
+	private MessageTemplate<BroadcastFormatContext> pickMessage(List<MessageTemplate<BroadcastFormatContext>> messages, boolean randomize) {
+		if (randomize) {
+			int index = (int) (Math.random() * messages.size());
+			return messages.get(index);
 		}
 
-		String message = config.autoBroadcast.broadcastMessages[currentIndex];
-		currentIndex = (currentIndex + 1) % config.autoBroadcast.broadcastMessages.length;
+		if (currentIndex >= messages.size()) {
+			currentIndex = 0;
+		}
+		MessageTemplate<BroadcastFormatContext> message = messages.get(currentIndex);
+		currentIndex = (currentIndex + 1) % messages.size();
 		return message;
 	}
 
-	public Component buildMessage(String template, MinecraftServer server, long serverStartedAtMs) {
-		String resolved = replacePlaceholders(template, server, serverStartedAtMs);
-		if (config.autoBroadcast.showBroadcastPrefix) {
-			resolved = config.autoBroadcast.broadcastPrefix + resolved;
+	private Component buildMessage(MessageTemplate<BroadcastFormatContext> template, String prefix, MinecraftServer server, long serverStartedAtMs) {
+		if (template.isConstant()) {
+			return TextUtils.cached(prefix + template.source());
 		}
-		return TextUtils.toComponent(resolved);
-	}
-
-	public String replacePlaceholders(String message, MinecraftServer server, long serverStartedAtMs) {
-		int onlinePlayers = server.getPlayerList().getPlayerCount();
-		int maxPlayers = server.getPlayerList().getMaxPlayers();
-		String serverName = server.getMotd() != null ? server.getMotd() : server.getServerModName();
-
-		long uptimeMs = Math.max(0, System.currentTimeMillis() - serverStartedAtMs);
-		long uptimeHours = uptimeMs / (1000L * 60 * 60);
-		long uptimeMinutes = (uptimeMs / (1000L * 60)) % 60;
-
-		long usedMb = (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) / (1024 * 1024);
-		long maxMb = Runtime.getRuntime().maxMemory() / (1024 * 1024);
-
-		double tps = calculateTps(server, serverStartedAtMs);
-
-		return message
-			.replace("{online}", String.valueOf(onlinePlayers))
-			.replace("{max_online}", String.valueOf(maxPlayers))
-			.replace("{server_name}", serverName)
-			.replace("{uptime_hours}", String.valueOf(uptimeHours))
-			.replace("{uptime_minutes}", String.valueOf(uptimeMinutes))
-			.replace("{memory_used}", String.valueOf(usedMb))
-			.replace("{memory_max}", String.valueOf(maxMb))
-			.replace("{tps}", String.format("%.1f", tps));
-	}
-
-	private double calculateTps(MinecraftServer server, long serverStartedAtMs) {
-		long uptimeMs = Math.max(1, System.currentTimeMillis() - serverStartedAtMs);
-		double seconds = uptimeMs / 1000.0;
-		double measured = server.getTickCount() / seconds;
-		return Math.min(config.timing.ticksPerSecond, measured);
+		String resolved = template.render(new BroadcastFormatContext(server, serverStartedAtMs, ticks));
+		return TextUtils.toComponent(prefix + resolved);
 	}
 }
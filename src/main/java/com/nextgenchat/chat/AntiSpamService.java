@@ -1,15 +1,20 @@
 package com.nextgenchat.chat;
 
+import com.nextgenchat.config.ConfigSnapshot;
 import com.nextgenchat.config.NextgenChatConfig;
 import com.nextgenchat.permission.PermissionService;
+import com.nextgenchat.stats.ChatStats;
+import net.minecraft.network.chat.Component;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Per-player cooldown, repeat and flood checks. Each player's state is guarded by its own monitor,
+ * so checks for different players never contend, and an accepted message allocates nothing.
+ */
 public class AntiSpamService {
 	private final NextgenChatConfig config;
 	private final PermissionService permissions;
@@ -20,42 +25,35 @@ public class AntiSpamService {
 		this.permissions = permissions;
 	}
 
-	public Optional<String> validateMessage(UUID playerId, String message, boolean bypassPermissions) {
-		if (!config.antiSpam.enableAntiSpam) {
+	public Optional<Component> validateMessage(UUID playerId, String message, boolean bypassPermissions) {
+		ConfigSnapshot.AntiSpam settings = config.snapshot().antiSpam;
+		if (!settings.enabled()) {
 			return Optional.empty();
 		}
 
-		PlayerSpamState state = states.computeIfAbsent(playerId, ignored -> new PlayerSpamState());
-		long now = System.currentTimeMillis();
-
-		if (!bypassPermissions && config.antiSpam.messageCooldown > 0) {
-			long cooldownMs = config.antiSpam.messageCooldown * 1000L;
-			if (now - state.lastMessageAtMs < cooldownMs) {
-				return Optional.of(config.antiSpam.cooldownMessage);
-			}
+		PlayerSpamState state = states.get(playerId);
+		if (state == null) {
+			state = states.computeIfAbsent(playerId, ignored -> new PlayerSpamState(settings));
 		}
 
-		String normalized = message.trim();
-		if (!normalized.isEmpty() && normalized.equals(state.lastMessage)) {
-			state.repeatCount++;
-			if (state.repeatCount >= config.antiSpam.maxRepeatedMessages) {
-				return Optional.of(config.antiSpam.repeatMessage);
+		long now = System.nanoTime();
+		try {
+			synchronized (state) {
+				return Optional.ofNullable(state.check(settings, message, bypassPermissions, now));
 			}
-		} else {
-			state.lastMessage = normalized;
-			state.repeatCount = 1;
+		} finally {
+			ChatStats.record(ChatStats.Stage.ANTI_SPAM, now);
 		}
+	}
 
-		if (config.antiSpam.enableAntiFlood) {
-			state.recentMessages.removeIf(timestamp -> now - timestamp > config.antiSpam.floodTimeWindow * 1000L);
-			state.recentMessages.add(now);
-			if (state.recentMessages.size() >= config.antiSpam.floodThreshold) {
-				return Optional.of(config.antiSpam.floodMessage);
-			}
+	/**
+	 * Allocates the player's state, including its rings, before their first message.
+	 */
+	public void warm(UUID playerId) {
+		ConfigSnapshot.AntiSpam settings = config.snapshot().antiSpam;
+		if (settings.enabled()) {
+			states.computeIfAbsent(playerId, ignored -> new PlayerSpamState(settings));
 		}
-
-		state.lastMessageAtMs = now;
-		return Optional.empty();
 	}
 
 	public void clearPlayer(UUID playerId) {
@@ -63,9 +61,140 @@ public class AntiSpamService {
 	}
 
 	private static final class PlayerSpamState {
-		private long lastMessageAtMs;
+		private boolean hasPrevious;
+		private long lastMessageAtNanos;
+
+		// The previous message is kept by reference together with its trimmed bounds so the repeat
+		// check never has to allocate a trimmed copy.
 		private String lastMessage = "";
+		private int lastStart;
+		private int lastEnd;
 		private int repeatCount;
-		private final List<Long> recentMessages = new ArrayList<>();
+
+		private final SimHasher hasher = new SimHasher();
+		private long[] recentFingerprints = new long[0];
+		private int fingerprintHead;
+		private int fingerprintCount;
+
+		private long[] recentMessages = new long[0];
+		private int recentHead;
+		private int recentCount;
+
+		private PlayerSpamState(ConfigSnapshot.AntiSpam settings) {
+			if (settings.similarityEnabled()) {
+				recentFingerprints = new long[settings.similarityWindow()];
+			}
+			if (settings.floodEnabled()) {
+				recentMessages = new long[settings.floodThreshold()];
+			}
+		}
+
+		private Component check(ConfigSnapshot.AntiSpam settings, String message, boolean bypassPermissions, long now) {
+			if (!bypassPermissions && settings.cooldownNanos() > 0 && hasPrevious) {
+				if (now - lastMessageAtNanos < settings.cooldownNanos()) {
+					return settings.cooldownMessage();
+				}
+			}
+
+			int start = 0;
+			int end = message.length();
+			while (start < end && message.charAt(start) <= ' ') {
+				start++;
+			}
+			while (end > start && message.charAt(end - 1) <= ' ') {
+				end--;
+			}
+
+			if (end > start && isSameAsLast(message, start, end)) {
+				repeatCount++;
+				if (repeatCount >= settings.maxRepeated()) {
+					return settings.repeatMessage();
+				}
+			} else {
+				lastMessage = message;
+				lastStart = start;
+				lastEnd = end;
+				repeatCount = 1;
+			}
+
+			if (settings.similarityEnabled() && recordAndCheckSimilar(settings, message)) {
+				return settings.similarMessage();
+			}
+
+			if (settings.floodEnabled() && recordAndCheckFlood(settings, now)) {
+				return settings.floodMessage();
+			}
+
+			hasPrevious = true;
+			lastMessageAtNanos = now;
+			return null;
+		}
+
+		private boolean isSameAsLast(String message, int start, int end) {
+			int length = end - start;
+			return length == lastEnd - lastStart && message.regionMatches(start, lastMessage, lastStart, length);
+		}
+
+		/**
+		 * Catches near-duplicates that the exact repeat check misses. The message's SimHash is
+		 * compared with the last {@code similarityWindow} fingerprints; once
+		 * {@code maxSimilarMessages} of them (including this one) are within
+		 * {@code similarityMaxDistance} bits, the message is rejected. Cost is linear in the message
+		 * length plus a popcount per remembered fingerprint.
+		 */
+		private boolean recordAndCheckSimilar(ConfigSnapshot.AntiSpam settings, String message) {
+			long fingerprint = hasher.fingerprint(message);
+			if (hasher.normalizedLength() < settings.similarityMinLength()) {
+				return false;
+			}
+
+			int window = settings.similarityWindow();
+			if (recentFingerprints.length != window) {
+				recentFingerprints = new long[window];
+				fingerprintHead = 0;
+				fingerprintCount = 0;
+			}
+
+			int similar = 1;
+			for (int i = 0; i < fingerprintCount; i++) {
+				if (SimHasher.distance(recentFingerprints[i], fingerprint) <= settings.similarityMaxDistance()) {
+					similar++;
+				}
+			}
+
+			recentFingerprints[fingerprintHead] = fingerprint;
+			fingerprintHead = (fingerprintHead + 1) % window;
+			if (fingerprintCount < window) {
+				fingerprintCount++;
+			}
+
+			return similar >= settings.maxSimilar();
+		}
+
+		/**
+		 * Pushes {@code now} into a ring of the last {@code floodThreshold} timestamps. The player is
+		 * flooding once the ring is full and its oldest entry still falls inside the time window.
+		 */
+		private boolean recordAndCheckFlood(ConfigSnapshot.AntiSpam settings, long now) {
+			int threshold = settings.floodThreshold();
+			if (recentMessages.length != threshold) {
+				recentMessages = new long[threshold];
+				recentHead = 0;
+				recentCount = 0;
+			}
+
+			recentMessages[recentHead] = now;
+			recentHead = (recentHead + 1) % threshold;
+			if (recentCount < threshold) {
+				recentCount++;
+			}
+
+			if (recentCount < threshold) {
+				return false;
+			}
+
+			long oldest = recentMessages[recentHead];
+			return now - oldest <= settings.floodWindowNanos();
+		}
 	}
 }
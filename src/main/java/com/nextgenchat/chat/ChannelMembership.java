@@ -0,0 +1,235 @@
+package com.nextgenchat.chat;
+
+import com.nextgenchat.permission.PermissionService;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.phys.Vec3;
+import net.minecraft.world.scores.PlayerTeam;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Recipient sets of the config-defined chat channels, maintained incrementally: a player is added
+ * on join, removed on quit, and re-bucketed on world change, respawn, team change and permission
+ * recalculation. Each channel keeps its members bucketed by scope key (the world or the team for
+ * scoped channels), so a send visits only the sender's bucket instead of the online list.
+ * Membership is mutated on the server thread only; {@link #canUse} may be called from any thread.
+ */
+public final class ChannelMembership {
+	private static final Object SERVER_SCOPE = new Object();
+
+	private final PermissionService permissions;
+	private final Map<UUID, Long> allowed = new ConcurrentHashMap<>();
+	private final Map<UUID, Member> members = new HashMap<>();
+	private List<ChatChannel> channels = List.of();
+	private List<Map<Object, Map<UUID, ServerPlayer>>> buckets = List.of();
+	private volatile MinecraftServer server;
+
+	public ChannelMembership(PermissionService permissions) {
+		this.permissions = permissions;
+	}
+
+	/**
+	 * Installs a channel list and recomputes the membership of everyone online.
+	 */
+	public void configure(MinecraftServer server, List<ChatChannel> channels) {
+		this.server = server;
+		this.channels = channels;
+		List<Map<Object, Map<UUID, ServerPlayer>>> rebuilt = new ArrayList<>(channels.size());
+		for (int i = 0; i < channels.size(); i++) {
+			rebuilt.add(new HashMap<>());
+		}
+		this.buckets = rebuilt;
+
+		List<ServerPlayer> online = new ArrayList<>(members.size());
+		for (Member member : members.values()) {
+			online.add(member.player);
+		}
+		members.clear();
+		allowed.clear();
+		for (ServerPlayer player : online) {
+			join(player);
+		}
+	}
+
+	public void join(ServerPlayer player) {
+		UUID playerId = player.getUUID();
+		quit(playerId);
+
+		Member member = new Member(player);
+		member.bits = computeBits(player);
+		members.put(playerId, member);
+		allowed.put(playerId, member.bits);
+		insert(playerId, member);
+	}
+
+	public void quit(UUID playerId) {
+		allowed.remove(playerId);
+		Member member = members.remove(playerId);
+		if (member != null) {
+			detach(playerId, member);
+		}
+	}
+
+	/**
+	 * World change, respawn or team change: the player object, its world and its team may all be
+	 * new.
+	 */
+	public void moved(ServerPlayer player) {
+		UUID playerId = player.getUUID();
+		Member member = members.get(playerId);
+		if (member == null) {
+			return;
+		}
+
+		detach(playerId, member);
+		member.update(player);
+		insert(playerId, member);
+	}
+
+	/**
+	 * Re-evaluates a player's channel permissions on the server thread. Safe to call from any
+	 * thread.
+	 */
+	public void recalculate(UUID playerId) {
+		MinecraftServer target = server;
+		if (target == null) {
+			return;
+		}
+
+		target.execute(() -> {
+			Member member = members.get(playerId);
+			if (member == null) {
+				return;
+			}
+
+			long bits = computeBits(member.player);
+			if (bits != member.bits) {
+				detach(playerId, member);
+				member.bits = bits;
+				allowed.put(playerId, bits);
+				insert(playerId, member);
+			}
+		});
+	}
+
+	public boolean canUse(UUID playerId, ChatChannel channel) {
+		Long bits = allowed.get(playerId);
+		return bits != null && (bits & channel.bit()) != 0;
+	}
+
+	/**
+	 * Whether the sender has somewhere to send in this channel: team channels need a team.
+	 */
+	public boolean hasScope(ServerPlayer sender, ChatChannel channel) {
+		Member member = members.get(sender.getUUID());
+		return member != null && scopeKey(channel, member) != null;
+	}
+
+	/**
+	 * Visits the members that share the sender's scope, within the channel radius if it has one.
+	 * Cost is linear in the size of that bucket. A message prepared against a channel list that has
+	 * since been replaced reaches nobody.
+	 */
+	public void forEachRecipient(ChatChannel channel, ServerPlayer sender, Consumer<ServerPlayer> action) {
+		if (channel.index() >= channels.size() || !channels.get(channel.index()).id().equals(channel.id())) {
+			return;
+		}
+
+		Member member = members.get(sender.getUUID());
+		Object key = member != null ? scopeKey(channel, member) : null;
+		Map<UUID, ServerPlayer> bucket = key != null ? buckets.get(channel.index()).get(key) : null;
+		if (bucket == null) {
+			return;
+		}
+
+		if (channel.radius() <= 0) {
+			bucket.values().forEach(action);
+			return;
+		}
+
+		Vec3 origin = sender.position();
+		double radiusSquared = (double) channel.radius() * channel.radius();
+		for (ServerPlayer player : bucket.values()) {
+			if (player.level() != sender.level()) {
+				continue;
+			}
+			Vec3 position = player.position();
+			double dx = position.x - origin.x;
+			double dy = position.y - origin.y;
+			double dz = position.z - origin.z;
+			if (dx * dx + dy * dy + dz * dz <= radiusSquared) {
+				action.accept(player);
+			}
+		}
+	}
+
+	private long computeBits(ServerPlayer player) {
+		long bits = 0L;
+		for (ChatChannel channel : channels) {
+			if (channel.permission().isEmpty() || permissions.hasNode(player, channel.permission(), channel.defaultAllowed())) {
+				bits |= channel.bit();
+			}
+		}
+		return bits;
+	}
+
+	private void insert(UUID playerId, Member member) {
+		for (ChatChannel channel : channels) {
+			Object key = (member.bits & channel.bit()) != 0 ? scopeKey(channel, member) : null;
+			if (key != null) {
+				buckets.get(channel.index()).computeIfAbsent(key, ignored -> new HashMap<>()).put(playerId, member.player);
+			}
+		}
+	}
+
+	private void detach(UUID playerId, Member member) {
+		for (ChatChannel channel : channels) {
+			Object key = (member.bits & channel.bit()) != 0 ? scopeKey(channel, member) : null;
+			if (key == null) {
+				continue;
+			}
+
+			Map<Object, Map<UUID, ServerPlayer>> scopes = buckets.get(channel.index());
+			Map<UUID, ServerPlayer> bucket = scopes.get(key);
+			if (bucket != null) {
+				bucket.remove(playerId);
+				if (bucket.isEmpty()) {
+					scopes.remove(key);
+				}
+			}
+		}
+	}
+
+	private static Object scopeKey(ChatChannel channel, Member member) {
+		return switch (channel.scope()) {
+			case SERVER -> SERVER_SCOPE;
+			case WORLD -> member.level;
+			case TEAM -> member.team;
+		};
+	}
+
+	private static final class Member {
+		private ServerPlayer player;
+		private Object level;
+		private String team;
+		private long bits;
+
+		private Member(ServerPlayer player) {
+			update(player);
+		}
+
+		private void update(ServerPlayer player) {
+			PlayerTeam playerTeam = player.getTeam();
+			this.player = player;
+			this.level = player.level();
+			this.team = playerTeam != null ? playerTeam.getName() : null;
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package com.nextgenchat.chat;
+
+import com.nextgenchat.NextgenChatMod;
+import com.nextgenchat.config.NextgenChatConfig;
+import com.nextgenchat.format.MessageFormats;
+import com.nextgenchat.format.MessageTemplate;
+import com.nextgenchat.format.PlayerFormatContext;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A compiled {@link NextgenChatConfig.ChannelDefinition}. {@code index} is the channel's bit in
+ * {@link ChannelMembership}'s per-player masks, so at most {@link #MAX_CHANNELS} channels are kept.
+ */
+public record ChatChannel(
+	int index,
+	String id,
+	String prefix,
+	String command,
+	MessageTemplate<PlayerFormatContext> format,
+	String permission,
+	boolean defaultAllowed,
+	Scope scope,
+	int radius
+) {
+	public static final int MAX_CHANNELS = Long.SIZE;
+
+	public enum Scope {
+		SERVER,
+		WORLD,
+		TEAM
+	}
+
+	public long bit() {
+		return 1L << index;
+	}
+
+	/**
+	 * Skips definitions without an id, duplicate ids and everything past {@link #MAX_CHANNELS}.
+	 */
+	public static List<ChatChannel> compile(NextgenChatConfig.ChannelDefinition[] definitions) {
+		List<ChatChannel> channels = new ArrayList<>();
+		if (definitions == null) {
+			return channels;
+		}
+
+		Set<String> ids = new HashSet<>();
+		for (NextgenChatConfig.ChannelDefinition definition : definitions) {
+			if (definition == null || definition.id == null || definition.id.isBlank() || !ids.add(definition.id)) {
+				continue;
+			}
+			if (channels.size() == MAX_CHANNELS) {
+				NextgenChatMod.LOGGER.warn("Only the first {} chat channels are used", MAX_CHANNELS);
+				break;
+			}
+
+			channels.add(new ChatChannel(
+				channels.size(),
+				definition.id,
+				definition.prefix != null ? definition.prefix : "",
+				definition.command != null ? definition.command : "",
+				MessageTemplate.compile(definition.format, MessageFormats.PLAYER_PLACEHOLDERS),
+				definition.permission != null ? definition.permission : "",
+				definition.defaultAllowed,
+				parseScope(definition),
+				Math.max(0, definition.radius)
+			));
+		}
+		return List.copyOf(channels);
+	}
+
+	private static Scope parseScope(NextgenChatConfig.ChannelDefinition definition) {
+		String scope = definition.scope != null ? definition.scope.toUpperCase(Locale.ROOT) : "";
+		try {
+			return Scope.valueOf(scope);
+		} catch (IllegalArgumentException e) {
+			NextgenChatMod.LOGGER.warn("Unknown scope '{}' for chat channel {}, using server", definition.scope, definition.id);
+			return Scope.SERVER;
+		}
+	}
+}
@@ -0,0 +1,229 @@
+package com.nextgenchat.chat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Fixed-size history of recent chat lines for moderators, with lookups by sender and by word.
+ * Events live in preallocated parallel arrays used as a ring, numbered by a running sequence.
+ * Instead of posting lists, every event links to the previous event of the same sender and, per
+ * word, to the previous event containing that word; the maps only hold the newest event of each
+ * chain. A lookup walks one chain from the newest event and stops at the first evicted one, so it
+ * touches only matching events, and eviction is a constant-time overwrite. Memory is bounded by
+ * the capacity. Not thread-safe: owned by the server thread.
+ */
+public final class ChatHistory {
+	private static final int MAX_TOKENS = 16;
+	private static final int MIN_TOKEN_LENGTH = 2;
+	private static final long NONE = -1L;
+
+	private final Map<UUID, Long> latestBySender = new HashMap<>();
+	private final Map<String, Long> latestByToken = new HashMap<>();
+	private final Map<String, UUID> sendersByName = new HashMap<>();
+	private int capacity;
+	private long nextSequence;
+
+	private long[] timestamps;
+	private UUID[] senders;
+	private String[] names;
+	private ChatService.ChatMode[] modes;
+	private String[] channels;
+	private int[] xs;
+	private int[] ys;
+	private int[] zs;
+	private String[] texts;
+	private long[] previousBySender;
+	private String[][] tokens;
+	private long[] previousByToken;
+
+	public ChatHistory(int capacity) {
+		resize(capacity);
+	}
+
+	/**
+	 * Reallocates the ring for a new capacity and forgets everything recorded so far. A capacity of
+	 * 0 disables recording.
+	 */
+	public void resize(int capacity) {
+		this.capacity = Math.max(0, capacity);
+		this.nextSequence = 0;
+		latestBySender.clear();
+		latestByToken.clear();
+		sendersByName.clear();
+
+		timestamps = new long[this.capacity];
+		senders = new UUID[this.capacity];
+		names = new String[this.capacity];
+		modes = new ChatService.ChatMode[this.capacity];
+		channels = new String[this.capacity];
+		xs = new int[this.capacity];
+		ys = new int[this.capacity];
+		zs = new int[this.capacity];
+		texts = new String[this.capacity];
+		previousBySender = new long[this.capacity];
+		tokens = new String[this.capacity][];
+		previousByToken = new long[this.capacity * MAX_TOKENS];
+	}
+
+	public void record(UUID sender, String name, ChatService.ChatMode mode, String channel, int x, int y, int z, long timestamp, String text) {
+		if (capacity == 0) {
+			return;
+		}
+
+		long sequence = nextSequence++;
+		int slot = slot(sequence);
+		if (sequence >= capacity) {
+			evict(sequence - capacity, slot);
+		}
+
+		timestamps[slot] = timestamp;
+		senders[slot] = sender;
+		names[slot] = name;
+		modes[slot] = mode;
+		channels[slot] = channel;
+		xs[slot] = x;
+		ys[slot] = y;
+		zs[slot] = z;
+		texts[slot] = text;
+
+		Long previous = latestBySender.put(sender, sequence);
+		previousBySender[slot] = previous != null ? previous : NONE;
+		sendersByName.put(name.toLowerCase(Locale.ROOT), sender);
+
+		String[] eventTokens = tokenize(text);
+		for (int i = 0; i < eventTokens.length; i++) {
+			Long previousWithToken = latestByToken.put(eventTokens[i], sequence);
+			previousByToken[slot * MAX_TOKENS + i] = previousWithToken != null ? previousWithToken : NONE;
+		}
+		tokens[slot] = eventTokens;
+	}
+
+	/**
+	 * The sender of the most recent recorded line by a player of that name, if still in history.
+	 */
+	public UUID findSender(String name) {
+		return sendersByName.get(name.toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * The sender's recorded lines, newest first.
+	 */
+	public List<Event> bySender(UUID sender, int limit) {
+		List<Event> events = new ArrayList<>();
+		long sequence = latestBySender.getOrDefault(sender, NONE);
+		while (events.size() < limit && isLive(sequence)) {
+			int slot = slot(sequence);
+			events.add(event(slot));
+			sequence = previousBySender[slot];
+		}
+		return events;
+	}
+
+	/**
+	 * Recorded lines containing every word of the query, newest first. Walks the chain of the
+	 * query's first word and checks the others against each event's own words.
+	 */
+	public List<Event> search(String query, int limit) {
+		List<Event> events = new ArrayList<>();
+		String[] queryTokens = tokenize(query);
+		if (queryTokens.length == 0) {
+			return events;
+		}
+
+		String first = queryTokens[0];
+		long sequence = latestByToken.getOrDefault(first, NONE);
+		while (events.size() < limit && isLive(sequence)) {
+			int slot = slot(sequence);
+			if (containsAll(tokens[slot], queryTokens)) {
+				events.add(event(slot));
+			}
+			sequence = previousByToken[slot * MAX_TOKENS + indexOf(tokens[slot], first)];
+		}
+		return events;
+	}
+
+	private void evict(long sequence, int slot) {
+		latestBySender.remove(senders[slot], sequence);
+		if (!latestBySender.containsKey(senders[slot])) {
+			sendersByName.remove(names[slot].toLowerCase(Locale.ROOT), senders[slot]);
+		}
+		for (String token : tokens[slot]) {
+			latestByToken.remove(token, sequence);
+		}
+	}
+
+	private boolean isLive(long sequence) {
+		return sequence != NONE && sequence >= nextSequence - capacity;
+	}
+
+	private int slot(long sequence) {
+		return (int) (sequence % capacity);
+	}
+
+	private Event event(int slot) {
+		return new Event(senders[slot], names[slot], modes[slot], channels[slot], xs[slot], ys[slot], zs[slot],
+			timestamps[slot], texts[slot]);
+	}
+
+	/**
+	 * Distinct lower-cased words of at least two letters or digits, at most {@value #MAX_TOKENS}.
+	 */
+	static String[] tokenize(String text) {
+		List<String> found = new ArrayList<>(MAX_TOKENS);
+		int length = text.length();
+		int start = -1;
+		for (int i = 0; i <= length && found.size() < MAX_TOKENS; i++) {
+			boolean wordChar = i < length && Character.isLetterOrDigit(text.charAt(i));
+			if (wordChar && start < 0) {
+				start = i;
+			} else if (!wordChar && start >= 0) {
+				if (i - start >= MIN_TOKEN_LENGTH) {
+					String token = text.substring(start, i).toLowerCase(Locale.ROOT);
+					if (!found.contains(token)) {
+						found.add(token);
+					}
+				}
+				start = -1;
+			}
+		}
+		return found.toArray(String[]::new);
+	}
+
+	private static boolean containsAll(String[] eventTokens, String[] queryTokens) {
+		for (String token : queryTokens) {
+			if (indexOf(eventTokens, token) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int indexOf(String[] values, String value) {
+		for (int i = 0; i < values.length; i++) {
+			if (values[i].equals(value)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param channel channel id for {@link ChatService.ChatMode#CHANNEL}, otherwise {@code null}
+	 */
+	public record Event(
+		UUID sender,
+		String name,
+		ChatService.ChatMode mode,
+		String channel,
+		int x,
+		int y,
+		int z,
+		long timestamp,
+		String text
+	) {
+	}
+}
@@ -0,0 +1,174 @@
+package com.nextgenchat.chat;
+
+import com.nextgenchat.NextgenChatMod;
+import com.nextgenchat.config.ConfigSnapshot;
+import com.nextgenchat.config.NextgenChatConfig;
+import net.minecraft.server.level.ServerPlayer;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Three-stage chat pipeline: the network thread only enqueues into a bounded per-player inbox,
+ * validation and formatting run on a small worker pool, and fan-out happens on the server thread
+ * once per tick.
+ */
+public class ChatPipeline {
+	private static final long SHUTDOWN_TIMEOUT_MS = 2_000L;
+
+	private final NextgenChatConfig config;
+	private final ChatService chat;
+	private final int validationThreads;
+	private final ExecutorService validators;
+	private final Map<UUID, Inbox> inboxes = new ConcurrentHashMap<>();
+	private final ConcurrentLinkedQueue<Ready> ready = new ConcurrentLinkedQueue<>();
+
+	public ChatPipeline(NextgenChatConfig config, ChatService chat) {
+		this.config = config;
+		this.chat = chat;
+
+		AtomicInteger threadIndex = new AtomicInteger();
+		this.validationThreads = Math.max(1, config.chat.validationThreads);
+		this.validators = Executors.newFixedThreadPool(validationThreads, runnable -> {
+			Thread thread = new Thread(runnable, "NextgenChat-Chat-" + threadIndex.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * The worker pool is sized once; a reloaded {@code validationThreads} applies after a restart.
+	 */
+	public int validationThreads() {
+		return validationThreads;
+	}
+
+	/**
+	 * Called from the network thread. Never blocks: a full inbox rejects the message immediately.
+	 */
+	public void submit(ServerPlayer player, String message) {
+		submit(player, message, null);
+	}
+
+	/**
+	 * Same as {@link #submit(ServerPlayer, String)} for a message addressed to a channel directly,
+	 * such as through its command.
+	 */
+	public void submit(ServerPlayer player, String message, ChatChannel channel) {
+		if (validators.isShutdown()) {
+			return;
+		}
+
+		ConfigSnapshot.Chat settings = config.snapshot().chat;
+		Inbox inbox = inboxes.computeIfAbsent(player.getUUID(), ignored -> new Inbox(settings.inboundQueueCapacity()));
+		if (!inbox.pending.offer(new Submission(player, message, channel))) {
+			ready.offer(new Ready(inbox, ChatService.PreparedMessage.reply(player, settings.queueFullMessage())));
+			return;
+		}
+
+		schedule(inbox);
+	}
+
+	/**
+	 * Fan-out stage. Runs on the server thread at the end of every tick and delivers everything
+	 * validated since the previous tick in a single batch. Messages from a session that has ended
+	 * since are dropped, even if the player has already reconnected with a new inbox.
+	 */
+	public void flush() {
+		Ready entry;
+		while ((entry = ready.poll()) != null) {
+			ChatService.PreparedMessage prepared = entry.prepared;
+			if (inboxes.get(prepared.sender().getUUID()) != entry.inbox) {
+				continue;
+			}
+
+			try {
+				chat.deliver(prepared);
+			} catch (RuntimeException e) {
+				NextgenChatMod.LOGGER.error("Failed to deliver chat message from {}", prepared.sender().getName().getString(), e);
+			}
+		}
+	}
+
+	/**
+	 * Drops everything the player still has in the pipeline: messages waiting for validation now,
+	 * validated ones at the next {@link #flush}. Server thread only.
+	 */
+	public void onPlayerDisconnect(UUID playerId) {
+		Inbox inbox = inboxes.remove(playerId);
+		if (inbox != null) {
+			inbox.pending.clear();
+		}
+	}
+
+	public void shutdown() {
+		validators.shutdown();
+		try {
+			if (!validators.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+				validators.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			validators.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		inboxes.clear();
+		ready.clear();
+	}
+
+	private void schedule(Inbox inbox) {
+		if (!inbox.scheduled.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			validators.execute(() -> drain(inbox));
+		} catch (RejectedExecutionException e) {
+			inbox.scheduled.set(false);
+		}
+	}
+
+	/**
+	 * Validation stage. At most one worker drains a given inbox at a time, so a player's messages
+	 * keep their order while different players are validated in parallel.
+	 */
+	private void drain(Inbox inbox) {
+		do {
+			Submission submission;
+			while ((submission = inbox.pending.poll()) != null) {
+				try {
+					ready.offer(new Ready(inbox, chat.prepare(submission.player, submission.message, submission.channel)));
+				} catch (RuntimeException e) {
+					NextgenChatMod.LOGGER.error("Failed to process chat message from {}", submission.player.getName().getString(), e);
+				}
+			}
+			inbox.scheduled.set(false);
+		} while (!inbox.pending.isEmpty() && inbox.scheduled.compareAndSet(false, true));
+	}
+
+	private record Submission(ServerPlayer player, String message, ChatChannel channel) {
+	}
+
+	/**
+	 * A validated message with the inbox it came through, which identifies the sender's session.
+	 */
+	private record Ready(Inbox inbox, ChatService.PreparedMessage prepared) {
+	}
+
+	private static final class Inbox {
+		private final ArrayBlockingQueue<Submission> pending;
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		private Inbox(int capacity) {
+			this.pending = new ArrayBlockingQueue<>(Math.max(1, capacity));
+		}
+	}
+}
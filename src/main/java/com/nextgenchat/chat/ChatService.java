@@ -1,21 +1,36 @@
 package com.nextgenchat.chat;
 
+import com.nextgenchat.NextgenChatMod;
+import com.nextgenchat.config.ConfigSnapshot;
 import com.nextgenchat.config.NextgenChatConfig;
+import com.nextgenchat.format.FilterFormatContext;
+import com.nextgenchat.format.MessageFormats;
+import com.nextgenchat.format.MessageTemplate;
+import com.nextgenchat.format.ModerationFormatContext;
+import com.nextgenchat.format.PlayerFormatContext;
+import com.nextgenchat.log.ChatLog;
 import com.nextgenchat.luckperms.LuckPermsBridge;
 import com.nextgenchat.moderation.ModerationService;
 import com.nextgenchat.permission.PermissionService;
+import com.nextgenchat.stats.ChatStats;
+import com.nextgenchat.util.ChatFanout;
 import com.nextgenchat.util.TextUtils;
 import net.minecraft.network.chat.Component;
+import net.minecraft.network.protocol.game.ClientboundSystemChatPacket;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.phys.Vec3;
 
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public class ChatService {
+	private static final String DEFAULT_MUTE_NOTICE = "&cВы заблокированы в чате.";
+
 	public enum ChatMode {
 		LOCAL,
-		GLOBAL
+		GLOBAL,
+		CHANNEL
 	}
 
 	private final NextgenChatConfig config;
@@ -23,6 +38,11 @@ public class ChatService {
 	private final ModerationService moderation;
 	private final AntiSpamService antiSpam;
 	private final LuckPermsBridge luckPerms;
+	private final RecipientGrid<ServerPlayer> localRecipients;
+	private final ChannelMembership channels;
+	private final ChatHistory history;
+	private volatile Consumer<Component> globalListener;
+	private volatile ChatLog chatLog;
 
 	public ChatService(
 		NextgenChatConfig config,
@@ -36,112 +56,318 @@ public class ChatService {
 		this.moderation = moderation;
 		this.antiSpam = antiSpam;
 		this.luckPerms = luckPerms;
+		this.localRecipients = new RecipientGrid<>(config.snapshot().chat.localRadius());
+		this.channels = new ChannelMembership(permissions);
+		this.history = new ChatHistory(historyCapacity(config));
+	}
+
+	public ChannelMembership channels() {
+		return channels;
+	}
+
+	public ChatHistory history() {
+		return history;
+	}
+
+	/**
+	 * Every delivered message is appended to {@code log}; {@code null} stops logging.
+	 */
+	public void setChatLog(ChatLog log) {
+		this.chatLog = log;
+	}
+
+	public static int historyCapacity(NextgenChatConfig config) {
+		return config.history.enableHistory ? config.history.capacity : 0;
+	}
+
+	/**
+	 * Notified of every global message after it is delivered here, for relaying to sibling servers.
+	 * Called on the server thread.
+	 */
+	public void setGlobalListener(Consumer<Component> listener) {
+		this.globalListener = listener;
 	}
 
 	public void handleMessage(ServerPlayer player, String message) {
-		MinecraftServer server = player.level().getServer();
-		if (server == null) {
-			return;
-		}
+		deliver(prepare(player, message));
+	}
 
+	public PreparedMessage prepare(ServerPlayer player, String message) {
+		return prepare(player, message, null);
+	}
+
+	/**
+	 * Validation stage: mute, mode, permission and anti-spam checks plus formatting. Safe to call
+	 * off the server thread; it never touches the player list. The whole message is checked against
+	 * the config snapshot taken on entry, even if a reload lands halfway through. {@code channel} is
+	 * set for messages sent through a channel command; otherwise a channel prefix may select one.
+	 */
+	public PreparedMessage prepare(ServerPlayer player, String message, ChatChannel channel) {
+		ConfigSnapshot snapshot = config.snapshot();
 		if (moderation.isMuted(player.getUUID()) && !permissions.canBypassMute(player)) {
-			sendMuteNotice(player);
-			return;
+			return PreparedMessage.reply(player, buildMuteNotice(player, snapshot));
 		}
 
-		ChatMode mode = resolveMode(message);
-		if (mode == ChatMode.GLOBAL && !config.chat.enableGlobalChat) {
-			player.sendSystemMessage(TextUtils.toComponent(config.commandMessages.chatDisabled));
-			return;
+		if (channel != null) {
+			return prepareChannel(player, message, channel, snapshot);
 		}
-		if (mode == ChatMode.LOCAL && !config.chat.enableLocalChat) {
-			player.sendSystemMessage(TextUtils.toComponent(config.commandMessages.chatDisabled));
-			return;
+		ChatChannel prefixed = channelByPrefix(message, snapshot);
+		if (prefixed != null) {
+			return prepareChannel(player, message.substring(prefixed.prefix().length()).trim(), prefixed, snapshot);
+		}
+
+		ConfigSnapshot.Chat settings = snapshot.chat;
+		ChatMode mode = resolveMode(message, settings);
+		if (mode == ChatMode.GLOBAL && !settings.globalEnabled()) {
+			return PreparedMessage.reply(player, settings.disabledMessage());
+		}
+		if (mode == ChatMode.LOCAL && !settings.localEnabled()) {
+			return PreparedMessage.reply(player, settings.disabledMessage());
 		}
 
 		if (mode == ChatMode.GLOBAL && !permissions.canUseGlobalChat(player)) {
-			permissions.sendNoPermissionMessage(player, "nextgenchat.chat.global");
-			return;
+			return PreparedMessage.reply(player, permissions.noPermissionMessage(player, "nextgenchat.chat.global"));
 		}
 		if (mode == ChatMode.LOCAL && !permissions.canUseLocalChat(player)) {
-			permissions.sendNoPermissionMessage(player, "nextgenchat.chat.local");
-			return;
+			return PreparedMessage.reply(player, permissions.noPermissionMessage(player, "nextgenchat.chat.local"));
+		}
+
+		String content = stripModePrefix(message, mode, settings);
+		WordFilter.Result filtered = filter(player, content, snapshot);
+		if (filtered.blocked()) {
+			return PreparedMessage.reply(player, snapshot.filter.blockMessage());
 		}
 
-		Optional<String> spamMessage = antiSpam.validateMessage(
+		Optional<Component> spamMessage = antiSpam.validateMessage(
 			player.getUUID(),
 			message,
 			permissions.canBypassAntiSpam(player)
 		);
 		if (spamMessage.isPresent()) {
-			player.sendSystemMessage(TextUtils.toComponent(spamMessage.get()));
+			return PreparedMessage.reply(player, spamMessage.get());
+		}
+
+		long formatStart = ChatStats.start();
+		Component formatted = formatMessage(player, filtered.text(), mode, snapshot.formats);
+		ChatStats.record(ChatStats.Stage.FORMAT, formatStart);
+		return new PreparedMessage(player, formatted, mode, null, content);
+	}
+
+	private PreparedMessage prepareChannel(ServerPlayer player, String message, ChatChannel channel, ConfigSnapshot snapshot) {
+		if (message.isBlank()) {
+			return PreparedMessage.reply(player, null);
+		}
+		if (!channels.canUse(player.getUUID(), channel)) {
+			return PreparedMessage.reply(player, permissions.noPermissionMessage(player, channel.permission()));
+		}
+
+		WordFilter.Result filtered = filter(player, message, snapshot);
+		if (filtered.blocked()) {
+			return PreparedMessage.reply(player, snapshot.filter.blockMessage());
+		}
+
+		Optional<Component> spamMessage = antiSpam.validateMessage(
+			player.getUUID(),
+			message,
+			permissions.canBypassAntiSpam(player)
+		);
+		if (spamMessage.isPresent()) {
+			return PreparedMessage.reply(player, spamMessage.get());
+		}
+
+		long formatStart = ChatStats.start();
+		Component formatted = channel.format().renderComponent(new PlayerFormatContext(luckPerms.peekMeta(player), filtered.text()));
+		ChatStats.record(ChatStats.Stage.FORMAT, formatStart);
+		return new PreparedMessage(player, formatted, ChatMode.CHANNEL, channel, message);
+	}
+
+	/**
+	 * Runs the word filter over the text the player wrote. Flagged messages are reported to staff on
+	 * the server thread; the text itself only reaches the chat log. The caller handles blocking.
+	 */
+	private WordFilter.Result filter(ServerPlayer player, String text, ConfigSnapshot snapshot) {
+		long start = ChatStats.start();
+		WordFilter.Result result = snapshot.filter.apply(text);
+		ChatStats.record(ChatStats.Stage.FILTER, start);
+
+		if (result.flagged()) {
+			String name = player.getName().getString();
+			NextgenChatMod.LOGGER.info("Flagged chat message from {} ({})", name, result.rule());
+			MinecraftServer server = player.level().getServer();
+			if (server != null) {
+				Component notification = snapshot.formats.flagNotification.renderComponent(
+					new FilterFormatContext(name, text, result.rule()));
+				server.execute(() -> moderation.notifyStaff(server, notification));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Fan-out stage. Must run on the server thread.
+	 */
+	public void deliver(PreparedMessage prepared) {
+		if (prepared.message() == null) {
 			return;
 		}
+		if (prepared.isReply()) {
+			ChatStats.increment(ChatStats.Counter.REJECTED);
+			prepared.sender().sendSystemMessage(prepared.message());
+			return;
+		}
+		dispatchMessage(prepared.sender(), prepared.message(), prepared.mode(), prepared.channel(), prepared.text());
+	}
 
-		String content = stripModePrefix(message, mode);
-		Component formatted = TextUtils.toComponent(formatMessage(player, content, mode));
-		dispatchMessage(player, formatted, mode);
+	/**
+	 * Refreshes the local chat grid from current player positions. Runs on the server thread once
+	 * per tick before fan-out; players that stayed inside their cell cost a single map lookup.
+	 */
+	public void trackPlayers(MinecraftServer server) {
+		localRecipients.resize(config.snapshot().chat.localRadius());
+		for (ServerPlayer player : server.getPlayerList().getPlayers()) {
+			localRecipients.update(player.getUUID(), player, player.level(), player.getX(), player.getY(), player.getZ());
+		}
 	}
 
 	public void onPlayerDisconnect(ServerPlayer player) {
+		localRecipients.remove(player.getUUID());
+		channels.quit(player.getUUID());
 		antiSpam.clearPlayer(player.getUUID());
 		permissions.clearPlayer(player.getUUID());
 	}
 
-	private ChatMode resolveMode(String message) {
-		if (!config.chat.globalChatSymbol.isEmpty() && message.startsWith(config.chat.globalChatSymbol)) {
+	/**
+	 * The channel whose prefix starts the message; the longest prefix wins.
+	 */
+	private static ChatChannel channelByPrefix(String message, ConfigSnapshot snapshot) {
+		ChatChannel match = null;
+		for (ChatChannel channel : snapshot.channels) {
+			String prefix = channel.prefix();
+			if (!prefix.isEmpty() && message.startsWith(prefix) && (match == null || prefix.length() > match.prefix().length())) {
+				match = channel;
+			}
+		}
+		return match;
+	}
+
+	private ChatMode resolveMode(String message, ConfigSnapshot.Chat settings) {
+		if (!settings.globalSymbol().isEmpty() && message.startsWith(settings.globalSymbol())) {
 			return ChatMode.GLOBAL;
 		}
 		return ChatMode.LOCAL;
 	}
 
-	private String stripModePrefix(String message, ChatMode mode) {
-		if (mode == ChatMode.GLOBAL && message.startsWith(config.chat.globalChatSymbol)) {
-			return message.substring(config.chat.globalChatSymbol.length()).trim();
+	private String stripModePrefix(String message, ChatMode mode, ConfigSnapshot.Chat settings) {
+		if (mode == ChatMode.GLOBAL && message.startsWith(settings.globalSymbol())) {
+			return message.substring(settings.globalSymbol().length()).trim();
 		}
 		return message;
 	}
 
-	private void dispatchMessage(ServerPlayer sender, Component message, ChatMode mode) {
+	private void dispatchMessage(ServerPlayer sender, Component message, ChatMode mode, ChatChannel channel, String text) {
 		MinecraftServer server = sender.level().getServer();
 		if (server == null) {
 			return;
 		}
+		if (mode == ChatMode.CHANNEL && !channels.hasScope(sender, channel)) {
+			sender.sendSystemMessage(config.snapshot().chat.channelNoTeamMessage());
+			return;
+		}
 
+		long start = ChatStats.start();
+		ClientboundSystemChatPacket packet = ChatFanout.packet(message);
+		int recipients = 0;
 		if (mode == ChatMode.GLOBAL) {
 			for (ServerPlayer player : server.getPlayerList().getPlayers()) {
-				player.sendSystemMessage(message);
+				if (ChatFanout.send(player, packet)) {
+					recipients++;
+				}
 			}
-			return;
+		} else if (mode == ChatMode.CHANNEL) {
+			int[] sent = {0};
+			channels.forEachRecipient(channel, sender, player -> {
+				if (ChatFanout.send(player, packet)) {
+					sent[0]++;
+				}
+			});
+			recipients = sent[0];
+		} else {
+			Vec3 senderPos = sender.position();
+			int[] sent = {0};
+			localRecipients.forEachWithin(
+				sender.level(),
+				senderPos.x,
+				senderPos.y,
+				senderPos.z,
+				config.snapshot().chat.localRadius(),
+				player -> {
+					if (ChatFanout.send(player, packet)) {
+						sent[0]++;
+					}
+				}
+			);
+			recipients = sent[0];
 		}
 
-		Vec3 senderPos = sender.position();
-		double radiusSquared = (double) config.chat.localChatRadius * config.chat.localChatRadius;
-		for (ServerPlayer player : server.getPlayerList().getPlayers()) {
-			if (player.level() == sender.level() && player.position().distanceToSqr(senderPos) <= radiusSquared) {
-				player.sendSystemMessage(message);
-			}
+		ChatStats.record(ChatStats.Stage.FANOUT, start);
+		ChatStats.increment(ChatStats.Counter.MESSAGES);
+		ChatStats.add(ChatStats.Counter.RECIPIENTS, recipients);
+
+		long now = System.currentTimeMillis();
+		String senderName = sender.getName().getString();
+		Vec3 position = sender.position();
+		history.record(sender.getUUID(), senderName, mode, channel != null ? channel.id() : null,
+			(int) Math.floor(position.x), (int) Math.floor(position.y), (int) Math.floor(position.z), now, text);
+		ChatLog log = chatLog;
+		if (log != null) {
+			String modeLabel = switch (mode) {
+				case LOCAL -> "L";
+				case GLOBAL -> "G";
+				case CHANNEL -> channel.id();
+			};
+			log.append(now, sender.getUUID(), senderName, modeLabel, text);
+		}
+
+		Consumer<Component> listener = globalListener;
+		if (mode == ChatMode.GLOBAL && listener != null) {
+			listener.accept(message);
 		}
 	}
 
-	private String formatMessage(ServerPlayer player, String message, ChatMode mode) {
-		String format = mode == ChatMode.GLOBAL ? config.chat.globalChatFormat : config.chat.localChatFormat;
-		String formatted = format
-			.replace("{player}", player.getName().getString())
-			.replace("{message}", message);
-		return luckPerms.replacePlaceholders(formatted, player);
+	private Component formatMessage(ServerPlayer player, String message, ChatMode mode, MessageFormats formats) {
+		MessageTemplate<PlayerFormatContext> template = mode == ChatMode.GLOBAL ? formats.globalChat : formats.localChat;
+		return template.renderComponent(new PlayerFormatContext(luckPerms.peekMeta(player), message));
 	}
 
-	private void sendMuteNotice(ServerPlayer player) {
+	/**
+	 * Never {@code null}, so a muted player always learns why the message went nowhere: a blank
+	 * {@code muteMessage}, or a mute that ends right after the check, gets a generic notice.
+	 */
+	private Component buildMuteNotice(ServerPlayer player, ConfigSnapshot snapshot) {
 		ModerationService.MuteData muteData = moderation.getMuteData(player.getUUID());
 		if (muteData == null) {
-			return;
+			return TextUtils.cached(DEFAULT_MUTE_NOTICE);
 		}
 
 		long remainingMs = muteData.expiresAt() - System.currentTimeMillis();
-		String text = config.moderation.muteMessage
-			.replace("{duration}", moderation.formatDuration(remainingMs))
-			.replace("{reason}", muteData.reason);
-		player.sendSystemMessage(TextUtils.toComponent(text));
+		String text = snapshot.formats.mute.render(new ModerationFormatContext(
+			muteData.playerName, moderation.formatDuration(remainingMs), muteData.reason, null));
+		return TextUtils.toComponent(text.isBlank() ? DEFAULT_MUTE_NOTICE : text);
+	}
+
+	/**
+	 * A validated chat line waiting for fan-out. A {@code null} mode marks a reply that goes only
+	 * to the sender (rejections, mute notices); {@code channel} is set for {@link ChatMode#CHANNEL}.
+	 * {@code text} is what the player wrote, without the mode prefix and before the word filter, for
+	 * the history and the chat log.
+	 */
+	public record PreparedMessage(ServerPlayer sender, Component message, ChatMode mode, ChatChannel channel, String text) {
+		public static PreparedMessage reply(ServerPlayer sender, Component message) {
+			return new PreparedMessage(sender, message, null, null, null);
+		}
+
+		public boolean isReply() {
+			return mode == null;
+		}
 	}
 }
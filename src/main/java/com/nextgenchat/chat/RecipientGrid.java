@@ -0,0 +1,181 @@
+package com.nextgenchat.chat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Uniform per-level grid over the X/Z plane used to answer local chat radius queries without
+ * scanning every online player. Entries only move between cells when they cross a cell border, and
+ * a query touches at most a 3x3 block of cells because the cell size is never below the radius.
+ * Not thread-safe: owned by the server thread.
+ */
+public final class RecipientGrid<T> {
+	private static final int MIN_CELL_SIZE = 16;
+
+	private final Map<UUID, Entry<T>> entries = new HashMap<>();
+	private final Map<Object, Map<Long, ArrayList<Entry<T>>>> levels = new HashMap<>();
+	private int cellSize;
+
+	public RecipientGrid(int radius) {
+		this.cellSize = cellSizeFor(radius);
+	}
+
+	public static int cellSizeFor(int radius) {
+		return Math.max(MIN_CELL_SIZE, radius);
+	}
+
+	public int cellSize() {
+		return cellSize;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public void update(UUID id, T value, Object level, double x, double y, double z) {
+		long cellKey = cellKey(cellOf(x), cellOf(z));
+		Entry<T> entry = entries.get(id);
+		if (entry == null) {
+			entry = new Entry<>(value);
+			entries.put(id, entry);
+			entry.setPosition(x, y, z);
+			insert(entry, level, cellKey);
+			return;
+		}
+
+		entry.value = value;
+		entry.setPosition(x, y, z);
+		if (entry.level != level || entry.cellKey != cellKey) {
+			detach(entry);
+			insert(entry, level, cellKey);
+		}
+	}
+
+	public void remove(UUID id) {
+		Entry<T> entry = entries.remove(id);
+		if (entry != null) {
+			detach(entry);
+		}
+	}
+
+	public void clear() {
+		entries.clear();
+		levels.clear();
+	}
+
+	public void resize(int radius) {
+		int resized = cellSizeFor(radius);
+		if (resized == cellSize) {
+			return;
+		}
+
+		cellSize = resized;
+		levels.clear();
+		for (Entry<T> entry : entries.values()) {
+			Object level = entry.level;
+			entry.level = null;
+			insert(entry, level, cellKey(cellOf(entry.x), cellOf(entry.z)));
+		}
+	}
+
+	/**
+	 * Visits every entry in {@code level} whose last recorded position lies within {@code radius}
+	 * of the given point (3D distance, same as the previous full scan).
+	 */
+	public void forEachWithin(Object level, double x, double y, double z, double radius, Consumer<? super T> action) {
+		Map<Long, ArrayList<Entry<T>>> cells = levels.get(level);
+		if (cells == null) {
+			return;
+		}
+
+		double radiusSquared = radius * radius;
+		int minX = cellOf(x - radius);
+		int maxX = cellOf(x + radius);
+		int minZ = cellOf(z - radius);
+		int maxZ = cellOf(z + radius);
+		for (int cellX = minX; cellX <= maxX; cellX++) {
+			for (int cellZ = minZ; cellZ <= maxZ; cellZ++) {
+				ArrayList<Entry<T>> cell = cells.get(cellKey(cellX, cellZ));
+				if (cell == null) {
+					continue;
+				}
+
+				for (int i = 0, size = cell.size(); i < size; i++) {
+					Entry<T> entry = cell.get(i);
+					double dx = entry.x - x;
+					double dy = entry.y - y;
+					double dz = entry.z - z;
+					if (dx * dx + dy * dy + dz * dz <= radiusSquared) {
+						action.accept(entry.value);
+					}
+				}
+			}
+		}
+	}
+
+	private void insert(Entry<T> entry, Object level, long cellKey) {
+		ArrayList<Entry<T>> cell = levels.computeIfAbsent(level, ignored -> new HashMap<>())
+			.computeIfAbsent(cellKey, ignored -> new ArrayList<>());
+		entry.level = level;
+		entry.cellKey = cellKey;
+		entry.indexInCell = cell.size();
+		cell.add(entry);
+	}
+
+	private void detach(Entry<T> entry) {
+		Map<Long, ArrayList<Entry<T>>> cells = levels.get(entry.level);
+		if (cells == null) {
+			return;
+		}
+
+		ArrayList<Entry<T>> cell = cells.get(entry.cellKey);
+		if (cell == null) {
+			return;
+		}
+
+		// Swap-remove keeps detaching O(1); the moved entry records its new slot.
+		int last = cell.size() - 1;
+		Entry<T> moved = cell.get(last);
+		cell.set(entry.indexInCell, moved);
+		moved.indexInCell = entry.indexInCell;
+		cell.remove(last);
+
+		if (cell.isEmpty()) {
+			cells.remove(entry.cellKey);
+			if (cells.isEmpty()) {
+				levels.remove(entry.level);
+			}
+		}
+	}
+
+	private int cellOf(double coordinate) {
+		return (int) Math.floor(coordinate / cellSize);
+	}
+
+	private static long cellKey(int cellX, int cellZ) {
+		return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+	}
+
+	private static final class Entry<T> {
+		private T value;
+		private Object level;
+		private long cellKey;
+		private int indexInCell;
+		private double x;
+		private double y;
+		private double z;
+
+		private Entry(T value) {
+			this.value = value;
+		}
+
+		private void setPosition(double x, double y, double z) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+		}
+	}
+}
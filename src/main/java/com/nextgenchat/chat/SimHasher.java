@@ -0,0 +1,104 @@
+package com.nextgenchat.chat;
+
+import java.util.Arrays;
+
+/**
+ * 64-bit SimHash over character trigrams of a normalized message. Normalization keeps letters
+ * only, lowercases them and collapses runs of the same letter, so "buy now!!1", "buy now!!2" and
+ * "buuuy  NOW" fingerprint identically while small edits move only a few bits.
+ * <p>
+ * The 64 per-bit vote counters are bit-sliced: plane {@code i} holds bit {@code i} of every
+ * counter, so adding a trigram hash is a short ripple-carry over a few longs instead of 64
+ * separate increments. Instances reuse their planes and are not thread-safe.
+ */
+final class SimHasher {
+	private static final int PLANES = 32;
+
+	private final long[] planes = new long[PLANES];
+	private int normalizedLength;
+
+	/**
+	 * Number of letters that survived normalization in the last {@link #fingerprint} call.
+	 */
+	int normalizedLength() {
+		return normalizedLength;
+	}
+
+	long fingerprint(String message) {
+		Arrays.fill(planes, 0L);
+		normalizedLength = 0;
+
+		int first = 0;
+		int second = 0;
+		int previous = -1;
+		int shingles = 0;
+		for (int i = 0; i < message.length(); i++) {
+			char raw = message.charAt(i);
+			if (!Character.isLetter(raw)) {
+				continue;
+			}
+
+			int current = Character.toLowerCase(raw);
+			if (current == previous) {
+				continue;
+			}
+			previous = current;
+			normalizedLength++;
+
+			if (normalizedLength >= 3) {
+				vote(mix(((long) first << 42) ^ ((long) second << 21) ^ current));
+				shingles++;
+			}
+			first = second;
+			second = current;
+		}
+
+		if (shingles == 0) {
+			if (normalizedLength == 0) {
+				return 0L;
+			}
+			vote(mix(((long) first << 21) ^ second));
+		}
+
+		// A bit is set when more than half of the trigram hashes had it set. The comparison
+		// "counter > total / 2" runs on all 64 bit-sliced counters at once, from the top plane down.
+		int threshold = Math.max(shingles, 1) >>> 1;
+		long greater = 0L;
+		long equal = -1L;
+		for (int plane = PLANES - 1; plane >= 0; plane--) {
+			if (((threshold >>> plane) & 1) == 0) {
+				greater |= equal & planes[plane];
+				equal &= ~planes[plane];
+			} else {
+				equal &= planes[plane];
+			}
+		}
+		return greater;
+	}
+
+	static int distance(long left, long right) {
+		return Long.bitCount(left ^ right);
+	}
+
+	private void vote(long hash) {
+		long carry = hash;
+		for (int plane = 0; carry != 0L && plane < PLANES; plane++) {
+			long next = planes[plane] & carry;
+			planes[plane] ^= carry;
+			carry = next;
+		}
+	}
+
+	/**
+	 * MurmurHash3 64-bit finalizer: spreads a trigram over all 64 bits.
+	 */
+	private static long mix(long value) {
+		long h = value;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
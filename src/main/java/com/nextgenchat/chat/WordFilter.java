@@ -0,0 +1,393 @@
+package com.nextgenchat.chat;
+
+import com.nextgenchat.NextgenChatMod;
+import com.nextgenchat.config.NextgenChatConfig;
+import com.nextgenchat.util.TextUtils;
+import net.minecraft.network.chat.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Word filter compiled from {@link NextgenChatConfig.FilterSettings} into a single Aho-Corasick
+ * automaton, expanded into a full transition table over the characters the words use. A message
+ * is scanned once: each character is normalized on the fly (lower case, leetspeak, Cyrillic
+ * letters that look like Latin ones, punctuation dropped, repeats collapsed) and costs one table
+ * lookup, so matching is linear in the message length however many words are loaded. Words go
+ * through the same normalization when compiled, but keep the length of each run of repeated
+ * letters: a match only counts where every run in the message is at least as long, so "butt"
+ * does not match "but" while "buuut" still matches "but". Immutable and thread-safe.
+ */
+public final class WordFilter {
+	private static final char DROPPED = 0;
+	private static final char[] NORMALIZED = buildNormalizationTable();
+
+	public enum Action {
+		FLAG,
+		CENSOR,
+		BLOCK
+	}
+
+	/**
+	 * @param text the message with censored words masked; unchanged if nothing was censored
+	 * @param rule name of the most severe rule that matched, or {@code null}
+	 */
+	public record Result(boolean blocked, boolean flagged, String text, String rule) {
+	}
+
+	private final boolean enabled;
+	private final int[] symbolOf;
+	private final int symbols;
+	private final int[] transitions;
+	private final int[] output;
+	private final int[] nextWithSameText;
+	private final int[] dictionaryLink;
+	private final int[] patternLength;
+	private final int[][] patternRuns;
+	private final Action[] patternAction;
+	private final String[] patternRule;
+	private final boolean[] patternWholeWord;
+	private final int maxPatternLength;
+	private final char censorCharacter;
+	private final Component blockMessage;
+
+	private WordFilter(NextgenChatConfig.FilterSettings settings, List<Pattern> patterns) {
+		this.enabled = settings.enableFilter && !patterns.isEmpty();
+		this.censorCharacter = settings.censorCharacter != null && !settings.censorCharacter.isEmpty()
+			? settings.censorCharacter.charAt(0)
+			: '*';
+		this.blockMessage = TextUtils.toComponent(settings.blockMessage != null ? settings.blockMessage : "");
+
+		char maxChar = 0;
+		int maxLength = 0;
+		for (Pattern pattern : patterns) {
+			for (int i = 0; i < pattern.text.length(); i++) {
+				maxChar = (char) Math.max(maxChar, pattern.text.charAt(i));
+			}
+			maxLength = Math.max(maxLength, pattern.text.length());
+		}
+		this.maxPatternLength = maxLength;
+
+		// Symbol 0 stands for every character no word uses.
+		this.symbolOf = new int[maxChar + 1];
+		int symbolCount = 1;
+		for (Pattern pattern : patterns) {
+			for (int i = 0; i < pattern.text.length(); i++) {
+				char c = pattern.text.charAt(i);
+				if (symbolOf[c] == 0) {
+					symbolOf[c] = symbolCount++;
+				}
+			}
+		}
+		this.symbols = symbolCount;
+
+		List<int[]> rows = new ArrayList<>();
+		List<Integer> outputs = new ArrayList<>();
+		rows.add(newRow(symbols));
+		outputs.add(-1);
+		this.patternLength = new int[patterns.size()];
+		this.patternRuns = new int[patterns.size()][];
+		this.nextWithSameText = new int[patterns.size()];
+		this.patternAction = new Action[patterns.size()];
+		this.patternRule = new String[patterns.size()];
+		this.patternWholeWord = new boolean[patterns.size()];
+		for (int p = 0; p < patterns.size(); p++) {
+			Pattern pattern = patterns.get(p);
+			patternLength[p] = pattern.text.length();
+			patternRuns[p] = pattern.runs;
+			patternAction[p] = pattern.action;
+			patternRule[p] = pattern.rule;
+			patternWholeWord[p] = pattern.wholeWord;
+
+			int state = 0;
+			for (int i = 0; i < pattern.text.length(); i++) {
+				int symbol = symbolOf[pattern.text.charAt(i)];
+				if (rows.get(state)[symbol] < 0) {
+					rows.get(state)[symbol] = rows.size();
+					rows.add(newRow(symbols));
+					outputs.add(-1);
+				}
+				state = rows.get(state)[symbol];
+			}
+			// Words differing only in run lengths ("bob", "boob") share the state.
+			nextWithSameText[p] = outputs.get(state);
+			outputs.set(state, p);
+		}
+
+		int states = rows.size();
+		this.transitions = new int[states * symbols];
+		this.output = new int[states];
+		this.dictionaryLink = new int[states];
+		int[] fail = new int[states];
+		for (int state = 0; state < states; state++) {
+			output[state] = outputs.get(state);
+		}
+		Arrays.fill(dictionaryLink, -1);
+
+		// Breadth-first, so a state's failure target is always complete before the state itself.
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		int[] root = rows.get(0);
+		for (int symbol = 0; symbol < symbols; symbol++) {
+			if (root[symbol] < 0) {
+				root[symbol] = 0;
+			} else {
+				queue.add(root[symbol]);
+			}
+		}
+		while (!queue.isEmpty()) {
+			int state = queue.poll();
+			int[] row = rows.get(state);
+			for (int symbol = 0; symbol < symbols; symbol++) {
+				int next = row[symbol];
+				if (next < 0) {
+					row[symbol] = rows.get(fail[state])[symbol];
+					continue;
+				}
+
+				fail[next] = rows.get(fail[state])[symbol];
+				dictionaryLink[next] = output[fail[next]] >= 0 ? fail[next] : dictionaryLink[fail[next]];
+				queue.add(next);
+			}
+		}
+		for (int state = 0; state < states; state++) {
+			System.arraycopy(rows.get(state), 0, transitions, state * symbols, symbols);
+		}
+	}
+
+	/**
+	 * Compiles every rule into one automaton. Words that normalize to the same text keep the most
+	 * severe action; unknown actions fall back to censoring with a warning.
+	 */
+	public static WordFilter compile(NextgenChatConfig.FilterSettings settings) {
+		Map<String, Pattern> patterns = new HashMap<>();
+		if (settings.rules != null) {
+			for (NextgenChatConfig.FilterRule rule : settings.rules) {
+				if (rule == null || rule.words == null) {
+					continue;
+				}
+
+				Action action = parseAction(rule);
+				for (String word : rule.words) {
+					Pattern pattern = word != null ? Pattern.of(word, action, rule.name, rule.wholeWord) : null;
+					if (pattern == null) {
+						continue;
+					}
+
+					String key = pattern.text + Arrays.toString(pattern.runs);
+					Pattern existing = patterns.get(key);
+					if (existing == null || action.ordinal() > existing.action.ordinal()) {
+						patterns.put(key, pattern);
+					}
+				}
+			}
+		}
+		return new WordFilter(settings, new ArrayList<>(patterns.values()));
+	}
+
+	public Component blockMessage() {
+		return blockMessage;
+	}
+
+	public Result apply(String text) {
+		if (!enabled) {
+			return new Result(false, false, text, null);
+		}
+
+		int length = text.length();
+		int[] starts = new int[maxPatternLength];
+		int[] runLengths = new int[maxPatternLength];
+		int emitted = 0;
+		int state = 0;
+		char previous = DROPPED;
+		Action worst = null;
+		String worstRule = null;
+		boolean flagged = false;
+		char[] censored = null;
+
+		for (int i = 0; i < length; i++) {
+			char c = normalize(text.charAt(i));
+			if (c == DROPPED) {
+				continue;
+			}
+			if (c == previous) {
+				runLengths[(emitted - 1) % maxPatternLength]++;
+				continue;
+			}
+
+			previous = c;
+			starts[emitted % maxPatternLength] = i;
+			runLengths[emitted % maxPatternLength] = 1;
+			emitted++;
+			state = transitions[state * symbols + (c < symbolOf.length ? symbolOf[c] : 0)];
+
+			int match = output[state] >= 0 ? state : dictionaryLink[state];
+			if (match < 0) {
+				continue;
+			}
+
+			// The current run is still open: look ahead for where it ends and how long it is.
+			int end = i;
+			int lastRun = 1;
+			for (int j = i + 1; j < length; j++) {
+				char next = normalize(text.charAt(j));
+				if (next == c) {
+					end = j;
+					lastRun++;
+				} else if (next != DROPPED) {
+					break;
+				}
+			}
+
+			for (; match >= 0; match = dictionaryLink[match]) {
+				for (int pattern = output[match]; pattern >= 0; pattern = nextWithSameText[pattern]) {
+					if (!runsMatch(patternRuns[pattern], runLengths, emitted, lastRun)) {
+						continue;
+					}
+					int start = starts[(emitted - patternLength[pattern]) % maxPatternLength];
+					if (patternWholeWord[pattern] && !(isBoundary(text, start - 1) && isBoundary(text, end + 1))) {
+						continue;
+					}
+
+					Action action = patternAction[pattern];
+					if (worst == null || action.ordinal() > worst.ordinal()) {
+						worst = action;
+						worstRule = patternRule[pattern];
+					}
+					if (action == Action.FLAG) {
+						flagged = true;
+					} else if (action == Action.CENSOR) {
+						if (censored == null) {
+							censored = text.toCharArray();
+						}
+						Arrays.fill(censored, start, end + 1, censorCharacter);
+					}
+				}
+			}
+		}
+
+		if (worst == null) {
+			return new Result(false, false, text, null);
+		}
+		return new Result(worst == Action.BLOCK, flagged, censored != null ? new String(censored) : text, worstRule);
+	}
+
+	/**
+	 * Whether the message runs ending at {@code emitted} are each at least as long as the word's.
+	 * {@code runs} is {@code null} for words without repeated letters.
+	 */
+	private boolean runsMatch(int[] runs, int[] runLengths, int emitted, int lastRun) {
+		if (runs == null) {
+			return true;
+		}
+
+		int last = runs.length - 1;
+		for (int j = 0; j < last; j++) {
+			if (runLengths[(emitted - runs.length + j) % maxPatternLength] < runs[j]) {
+				return false;
+			}
+		}
+		return lastRun >= runs[last];
+	}
+
+	private static boolean isBoundary(String text, int index) {
+		return index < 0 || index >= text.length() || !Character.isLetterOrDigit(text.charAt(index));
+	}
+
+	private static char normalize(char c) {
+		if (c < NORMALIZED.length) {
+			return NORMALIZED[c];
+		}
+		if (Character.isWhitespace(c)) {
+			return ' ';
+		}
+		return Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : DROPPED;
+	}
+
+	private static char[] buildNormalizationTable() {
+		char[] table = new char[0x0500];
+		for (char c = 0; c < table.length; c++) {
+			if (Character.isWhitespace(c)) {
+				table[c] = ' ';
+			} else if (Character.isLetterOrDigit(c)) {
+				table[c] = Character.toLowerCase(c);
+			} else {
+				table[c] = DROPPED;
+			}
+		}
+
+		String leet = "0o1i!i|i3e4a@a5s$s7t";
+		String homoglyphs = "аaвbеeёeкkмmнhоoрpсcтtуyхxіiјjѕs";
+		for (String pairs : new String[]{leet, homoglyphs}) {
+			for (int i = 0; i < pairs.length(); i += 2) {
+				table[pairs.charAt(i)] = pairs.charAt(i + 1);
+				table[Character.toUpperCase(pairs.charAt(i))] = pairs.charAt(i + 1);
+			}
+		}
+		return table;
+	}
+
+	private static Action parseAction(NextgenChatConfig.FilterRule rule) {
+		String action = rule.action != null ? rule.action.toUpperCase(Locale.ROOT) : "";
+		try {
+			return Action.valueOf(action);
+		} catch (IllegalArgumentException e) {
+			NextgenChatMod.LOGGER.warn("Unknown action '{}' in filter rule '{}', using censor", rule.action, rule.name);
+			return Action.CENSOR;
+		}
+	}
+
+	private static int[] newRow(int symbols) {
+		int[] row = new int[symbols];
+		Arrays.fill(row, -1);
+		return row;
+	}
+
+	/**
+	 * @param text normalized word with repeats collapsed
+	 * @param runs length of each run of {@code text}, or {@code null} if all are 1
+	 */
+	private record Pattern(String text, int[] runs, Action action, String rule, boolean wholeWord) {
+		/**
+		 * Normalizes a configured word the way messages are normalized. Whitespace becomes a single
+		 * space, so words may contain spaces. {@code null} if nothing is left.
+		 */
+		static Pattern of(String word, Action action, String rule, boolean wholeWord) {
+			StringBuilder text = new StringBuilder(word.length());
+			int[] runs = new int[word.length()];
+			boolean repeated = false;
+			char previous = DROPPED;
+			for (int i = 0; i < word.length(); i++) {
+				char c = normalize(word.charAt(i));
+				if (c == DROPPED) {
+					continue;
+				}
+				if (c == previous) {
+					if (c != ' ') {
+						runs[text.length() - 1]++;
+						repeated = true;
+					}
+					continue;
+				}
+				if (c == ' ' && text.isEmpty()) {
+					continue;
+				}
+
+				runs[text.length()] = 1;
+				text.append(c);
+				previous = c;
+			}
+			if (!text.isEmpty() && text.charAt(text.length() - 1) == ' ') {
+				text.setLength(text.length() - 1);
+			}
+			if (text.isEmpty()) {
+				return null;
+			}
+			return new Pattern(text.toString(), repeated ? Arrays.copyOf(runs, text.length()) : null, action, rule, wholeWord);
+		}
+	}
+}
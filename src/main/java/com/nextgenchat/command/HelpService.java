@@ -1,6 +1,7 @@
 package com.nextgenchat.command;
 
 import com.nextgenchat.NextgenChatMod;
+import com.nextgenchat.chat.ChatChannel;
 import com.nextgenchat.config.NextgenChatConfig;
 import com.nextgenchat.luckperms.LuckPermsBridge;
 import com.nextgenchat.permission.PermissionService;
@@ -20,17 +21,26 @@ public final class HelpService {
 		line(source, "");
 		line(source, "&eЛокальный чат: радиус &f" + config.chat.localChatRadius + " &7блоков");
 		line(source, "&eГлобальный чат: символ &f'" + config.chat.globalChatSymbol + "'&7 в начале сообщения");
+		for (ChatChannel channel : config.snapshot().channels) {
+			if (!channel.command().isEmpty()) {
+				line(source, "&eКанал &f" + channel.id() + "&e: &f/" + channel.command() + " <сообщение>");
+			}
+		}
 		line(source, "");
 		line(source, "&eКоманды:");
 		line(source, "&f/nextgenchat help &7- эта справка");
 		line(source, "&f/nextgenchat reload &7- перезагрузить конфиг");
 		line(source, "&f/nextgenchat permissions reload|status");
+		line(source, "&f/nextgenchat stats|stats reset &7- задержки и счётчики");
+		line(source, "&f/nextgenchat history <игрок> &7- последние сообщения игрока");
+		line(source, "&f/nextgenchat search <слова> &7- поиск по истории чата");
 		line(source, "&f/nextgenchat broadcast|broadcast toggle|broadcast status");
 		line(source, "&f/mute &7| &f/unmute &7| &f/mutelist");
 		line(source, "");
 		line(source, "&eПлейсхолдеры автобродкаста:");
 		line(source, "&7{online}, {max_online}, {server_name}, {memory_used}, {memory_max}");
-		line(source, "&7{uptime_hours}, {uptime_minutes}, {tps}");
+		line(source, "&7{uptime_hours}, {uptime_minutes}, {tps}, {tps_5s}, {tps_1m}, {tps_5m}");
+		line(source, "&7{mspt}, {mspt_p95}, {mspt_max}");
 		line(source, "");
 		line(source, "&eФайлы:");
 		line(source, "&7config/nextgenchat.json");
@@ -38,6 +48,7 @@ public final class HelpService {
 		line(source, "");
 		line(source, "&eСтатус:");
 		line(source, statusLine("Чат", config.chat.enableLocalChat || config.chat.enableGlobalChat));
+		line(source, statusLine("Фильтр слов", config.filter.enableFilter));
 		line(source, statusLine("Автобродкаст", config.autoBroadcast.enableAutoBroadcast));
 		line(source, statusLine("Модерация", config.moderation.enableModeration));
 		line(source, statusLine("Права", config.permissions.enablePermissionSystem));
@@ -47,7 +58,7 @@ public final class HelpService {
 	}
 
 	private static void line(CommandSourceStack source, String text) {
-		Component component = TextUtils.toComponent(text);
+		Component component = TextUtils.cached(text);
 		source.sendSuccess(() -> component, false);
 	}
 
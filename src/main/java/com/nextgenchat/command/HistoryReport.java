@@ -0,0 +1,65 @@
+package com.nextgenchat.command;
+
+import com.nextgenchat.chat.ChatHistory;
+import com.nextgenchat.util.LegacyComponentBuilder;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.network.chat.Component;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+public final class HistoryReport {
+	private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
+
+	private HistoryReport() {
+	}
+
+	public static void sendHistory(CommandSourceStack source, String playerName, List<ChatHistory.Event> events) {
+		if (events.isEmpty()) {
+			line(source, new LegacyComponentBuilder().append("&eНет сообщений от &f").appendPlain(playerName).append("&e в истории").build());
+			return;
+		}
+
+		line(source, new LegacyComponentBuilder().append("&6&l=== Сообщения ").appendPlain(playerName).append(" ===").build());
+		send(source, events);
+	}
+
+	public static void sendSearch(CommandSourceStack source, String query, List<ChatHistory.Event> events) {
+		if (events.isEmpty()) {
+			line(source, new LegacyComponentBuilder().append("&eНичего не найдено по запросу &f").appendPlain(query).build());
+			return;
+		}
+
+		line(source, new LegacyComponentBuilder().append("&6&l=== Поиск: ").appendPlain(query).append(" &6&l===").build());
+		send(source, events);
+	}
+
+	/**
+	 * Oldest first, so the newest line ends up at the bottom of the chat.
+	 */
+	private static void send(CommandSourceStack source, List<ChatHistory.Event> events) {
+		for (int i = events.size() - 1; i >= 0; i--) {
+			ChatHistory.Event event = events.get(i);
+			line(source, new LegacyComponentBuilder()
+				.append("&7[" + TIME.format(Instant.ofEpochMilli(event.timestamp())) + "] &8[" + modeLabel(event) + "] &f")
+				.appendPlain(event.name())
+				.append(" &8(" + event.x() + ", " + event.y() + ", " + event.z() + ")&7: &f")
+				.appendPlain(event.text())
+				.build());
+		}
+	}
+
+	private static String modeLabel(ChatHistory.Event event) {
+		return switch (event.mode()) {
+			case LOCAL -> "L";
+			case GLOBAL -> "G";
+			case CHANNEL -> event.channel();
+		};
+	}
+
+	private static void line(CommandSourceStack source, Component component) {
+		source.sendSuccess(() -> component, false);
+	}
+}
@@ -0,0 +1,74 @@
+package com.nextgenchat.command;
+
+import com.nextgenchat.stats.ChatStats;
+import com.nextgenchat.stats.LatencyHistogram;
+import com.nextgenchat.stats.TickTracker;
+import com.nextgenchat.util.TextUtils;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.network.chat.Component;
+
+import java.util.Locale;
+
+public final class StatsReport {
+	private StatsReport() {
+	}
+
+	public static void send(CommandSourceStack source, TickTracker ticks) {
+		ChatStats.Snapshot stats = ChatStats.snapshot();
+
+		line(source, "&6&l=== NextgenChat - Статистика ===");
+		line(source, "&eTPS (5с / 1м / 5м): &f"
+			+ formatRate(ticks.tps(TickTracker.WINDOW_5S)) + " / "
+			+ formatRate(ticks.tps(TickTracker.WINDOW_1M)) + " / "
+			+ formatRate(ticks.tps(TickTracker.WINDOW_5M)));
+		TickTracker.Mspt mspt = ticks.mspt(TickTracker.WINDOW_1M);
+		line(source, "&eMSPT за 1м (сред. / p95 / max): &f"
+			+ formatMillis(mspt.mean()) + " / " + formatMillis(mspt.p95()) + " / " + formatMillis(mspt.max()));
+		line(source, "");
+		line(source, "&7За последние &f" + formatSeconds(stats.elapsedMs()) + "&7 (p50 / p99 / p99.9 / max):");
+		for (ChatStats.Stage stage : ChatStats.Stage.values()) {
+			LatencyHistogram.Snapshot histogram = stats.stages().get(stage);
+			line(source, "&e" + stage.label() + ": &f" + histogram.count() + "&7 раз, &f"
+				+ formatNanos(histogram.p50Nanos()) + " / "
+				+ formatNanos(histogram.p99Nanos()) + " / "
+				+ formatNanos(histogram.p999Nanos()) + " / "
+				+ formatNanos(histogram.maxNanos()));
+		}
+		line(source, "");
+		line(source, "&eСообщений: &f" + stats.count(ChatStats.Counter.MESSAGES)
+			+ " &7(" + formatRate(stats.perSecond(ChatStats.Counter.MESSAGES)) + "/с), отклонено: &f"
+			+ stats.count(ChatStats.Counter.REJECTED));
+		line(source, "&eПолучателей: &f" + stats.count(ChatStats.Counter.RECIPIENTS)
+			+ " &7(" + formatRate(stats.perSecond(ChatStats.Counter.RECIPIENTS)) + "/с)");
+		line(source, "&eАвтобродкастов: &f" + stats.count(ChatStats.Counter.BROADCASTS));
+		line(source, "&eВызовов LuckPerms: &f" + stats.count(ChatStats.Counter.LUCKPERMS_CALLS)
+			+ " &7(" + formatRate(stats.perSecond(ChatStats.Counter.LUCKPERMS_CALLS)) + "/с)");
+	}
+
+	private static void line(CommandSourceStack source, String text) {
+		Component component = TextUtils.toComponent(text);
+		source.sendSuccess(() -> component, false);
+	}
+
+	private static String formatNanos(long nanos) {
+		if (nanos < 1_000L) {
+			return nanos + "нс";
+		}
+		if (nanos < 1_000_000L) {
+			return String.format(Locale.ROOT, "%.1fмкс", nanos / 1_000.0);
+		}
+		return String.format(Locale.ROOT, "%.2fмс", nanos / 1_000_000.0);
+	}
+
+	private static String formatMillis(double millis) {
+		return String.format(Locale.ROOT, "%.2fмс", millis);
+	}
+
+	private static String formatRate(double perSecond) {
+		return String.format(Locale.ROOT, "%.1f", perSecond);
+	}
+
+	private static String formatSeconds(long millis) {
+		return millis / 1000L + "с";
+	}
+}
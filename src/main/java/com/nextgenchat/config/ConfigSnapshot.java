@@ -0,0 +1,173 @@
+package com.nextgenchat.config;
+
+import com.nextgenchat.chat.ChatChannel;
+import com.nextgenchat.chat.WordFilter;
+import com.nextgenchat.format.MessageFormats;
+import com.nextgenchat.permission.PermissionNode;
+import com.nextgenchat.util.TextUtils;
+import net.minecraft.network.chat.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validated, precompiled view of {@link NextgenChatConfig} used by the chat hot paths. Built once per
+ * load and published through a single volatile reference, so a message that reads the snapshot once
+ * sees one consistent config even while a reload swaps in the next. Instances are immutable.
+ */
+public final class ConfigSnapshot {
+	public final Chat chat;
+	public final AntiSpam antiSpam;
+	public final Broadcast broadcast;
+	public final Permissions permissions;
+	public final boolean moderationEnabled;
+	public final MessageFormats formats;
+	public final List<ChatChannel> channels;
+	public final WordFilter filter;
+
+	private ConfigSnapshot(NextgenChatConfig config, MessageFormats formats, List<ChatChannel> channels, WordFilter filter) {
+		NextgenChatConfig.ChatSettings chat = config.chat;
+		this.chat = new Chat(
+			chat.enableLocalChat,
+			chat.enableGlobalChat,
+			Math.max(0, chat.localChatRadius),
+			chat.globalChatSymbol != null ? chat.globalChatSymbol : "",
+			Math.max(1, chat.inboundQueueCapacity),
+			component(config.commandMessages.chatDisabled),
+			component(chat.queueFullMessage),
+			component(config.commandMessages.channelNoTeam)
+		);
+
+		NextgenChatConfig.AntiSpamSettings antiSpam = config.antiSpam;
+		this.antiSpam = new AntiSpam(
+			antiSpam.enableAntiSpam,
+			TimeUnit.SECONDS.toNanos(Math.max(0, antiSpam.messageCooldown)),
+			Math.max(1, antiSpam.maxRepeatedMessages),
+			antiSpam.enableSimilarityCheck,
+			Math.max(1, antiSpam.similarityWindow),
+			Math.max(0, antiSpam.similarityMaxDistance),
+			Math.max(0, antiSpam.similarityMinLength),
+			Math.max(1, antiSpam.maxSimilarMessages),
+			antiSpam.enableAntiFlood,
+			Math.max(1, antiSpam.floodThreshold),
+			TimeUnit.SECONDS.toNanos(Math.max(0, antiSpam.floodTimeWindow)),
+			component(antiSpam.cooldownMessage),
+			component(antiSpam.repeatMessage),
+			component(antiSpam.similarMessage),
+			component(antiSpam.floodMessage)
+		);
+
+		NextgenChatConfig.AutoBroadcastSettings broadcast = config.autoBroadcast;
+		this.broadcast = new Broadcast(
+			broadcast.enableAutoBroadcast,
+			Math.max(1, broadcast.broadcastInterval * Math.max(1, config.timing.ticksPerSecond)),
+			broadcast.randomizeMessages,
+			broadcast.showBroadcastPrefix && broadcast.broadcastPrefix != null ? broadcast.broadcastPrefix : ""
+		);
+
+		NextgenChatConfig.PermissionSettings permissions = config.permissions;
+		long cacheTimeoutMs = TimeUnit.SECONDS.toMillis(Math.max(0, permissions.permissionCacheTimeout));
+		int refreshAheadPercent = Math.clamp(permissions.permissionRefreshAheadPercent, 1, 100);
+		this.permissions = new Permissions(
+			permissions.enablePermissionSystem,
+			permissions.enablePermissionCache,
+			cacheTimeoutMs,
+			cacheTimeoutMs * refreshAheadPercent / 100,
+			PermissionNode.defaults(permissions),
+			permissions.debugPermissionLogging,
+			permissions.noPermissionMessage != null ? permissions.noPermissionMessage : ""
+		);
+
+		this.moderationEnabled = config.moderation.enableModeration;
+		this.formats = formats;
+		this.channels = channels;
+		this.filter = filter;
+	}
+
+	public static ConfigSnapshot compile(NextgenChatConfig config) {
+		return new ConfigSnapshot(config, MessageFormats.compile(config), ChatChannel.compile(config.channels),
+			WordFilter.compile(config.filter));
+	}
+
+	/**
+	 * Recompiles after a reload. The settings records are cheap and always rebuilt; message
+	 * templates, channels and the word filter are carried over from {@code previous} unless their
+	 * section changed.
+	 */
+	public static ConfigSnapshot compile(NextgenChatConfig config, ConfigSnapshot previous, Set<NextgenChatConfig.Section> changed) {
+		List<ChatChannel> channels = changed.contains(NextgenChatConfig.Section.CHANNELS)
+			? ChatChannel.compile(config.channels)
+			: previous.channels;
+		WordFilter filter = changed.contains(NextgenChatConfig.Section.FILTER)
+			? WordFilter.compile(config.filter)
+			: previous.filter;
+		return new ConfigSnapshot(config, MessageFormats.compile(config, previous.formats, changed), channels, filter);
+	}
+
+	public ChatChannel channel(String id) {
+		for (ChatChannel channel : channels) {
+			if (channel.id().equals(id)) {
+				return channel;
+			}
+		}
+		return null;
+	}
+
+	private static Component component(String text) {
+		return TextUtils.toComponent(text != null ? text : "");
+	}
+
+	public record Chat(
+		boolean localEnabled,
+		boolean globalEnabled,
+		int localRadius,
+		String globalSymbol,
+		int inboundQueueCapacity,
+		Component disabledMessage,
+		Component queueFullMessage,
+		Component channelNoTeamMessage
+	) {
+	}
+
+	public record AntiSpam(
+		boolean enabled,
+		long cooldownNanos,
+		int maxRepeated,
+		boolean similarityEnabled,
+		int similarityWindow,
+		int similarityMaxDistance,
+		int similarityMinLength,
+		int maxSimilar,
+		boolean floodEnabled,
+		int floodThreshold,
+		long floodWindowNanos,
+		Component cooldownMessage,
+		Component repeatMessage,
+		Component similarMessage,
+		Component floodMessage
+	) {
+	}
+
+	/**
+	 * @param prefix prepended to every broadcast; empty when the prefix is switched off
+	 */
+	public record Broadcast(boolean enabled, int intervalTicks, boolean randomize, String prefix) {
+	}
+
+	/**
+	 * @param refreshAfterMs      cache age after which an entry is refreshed in the background
+	 * @param defaults            packed {@link PermissionNode} defaults used without LuckPerms
+	 * @param noPermissionMessage raw format with {@code {permission}} and {@code {player}}
+	 */
+	public record Permissions(
+		boolean enabled,
+		boolean cacheEnabled,
+		long cacheTimeoutMs,
+		long refreshAfterMs,
+		long defaults,
+		boolean debugLogging,
+		String noPermissionMessage
+	) {
+	}
+}
@@ -0,0 +1,95 @@
+package com.nextgenchat.config;
+
+import com.nextgenchat.NextgenChatMod;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the config directory for edits to one file. Editors often save in several writes, so a
+ * change is reported only once the file has been quiet for {@code debounceMs}. The callback runs on
+ * the watcher thread and is expected to hand the reload over to the server thread.
+ */
+public final class ConfigWatcher {
+	private final Path file;
+	private final long debounceMs;
+	private final Runnable onChange;
+	private WatchService watchService;
+
+	public ConfigWatcher(Path file, long debounceMs, Runnable onChange) {
+		this.file = file;
+		this.debounceMs = Math.max(0, debounceMs);
+		this.onChange = onChange;
+	}
+
+	public void start() {
+		try {
+			watchService = file.getFileSystem().newWatchService();
+			file.toAbsolutePath().getParent().register(watchService,
+				StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		} catch (IOException e) {
+			NextgenChatMod.LOGGER.error("Failed to watch NextgenChat config", e);
+			stop();
+			return;
+		}
+
+		Thread thread = new Thread(this::run, "NextgenChat-ConfigWatcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Closing the watch service wakes the watcher thread, which then exits.
+	 */
+	public void stop() {
+		if (watchService == null) {
+			return;
+		}
+
+		try {
+			watchService.close();
+		} catch (IOException e) {
+			NextgenChatMod.LOGGER.warn("Failed to close NextgenChat config watcher", e);
+		}
+		watchService = null;
+	}
+
+	private void run() {
+		WatchService service = watchService;
+		try {
+			while (true) {
+				if (!drain(service.take())) {
+					continue;
+				}
+
+				WatchKey next;
+				while ((next = service.poll(debounceMs, TimeUnit.MILLISECONDS)) != null) {
+					drain(next);
+				}
+				onChange.run();
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// Stopped.
+		}
+	}
+
+	/**
+	 * Consumes the key's events and reports whether any of them may concern the watched file.
+	 */
+	private boolean drain(WatchKey key) {
+		boolean relevant = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+				relevant = true;
+			}
+		}
+		key.reset();
+		return relevant;
+	}
+}
@@ -2,7 +2,9 @@ package com.nextgenchat.config;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.nextgenchat.NextgenChatMod;
+import com.nextgenchat.format.MessageFormats;
 import net.fabricmc.loader.api.FabricLoader;
 
 import java.io.File;
@@ -10,6 +12,10 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 public class NextgenChatConfig {
 	private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
@@ -23,6 +29,21 @@ public class NextgenChatConfig {
 	public ModerationSettings moderation = new ModerationSettings();
 	public PermissionSettings permissions = new PermissionSettings();
 	public CommandMessages commandMessages = new CommandMessages();
+	public ReloadSettings reload = new ReloadSettings();
+	public RelaySettings relay = new RelaySettings();
+	public HistorySettings history = new HistorySettings();
+	public ChatLogSettings chatLog = new ChatLogSettings();
+	public FilterSettings filter = new FilterSettings();
+	public ChannelDefinition[] channels = {
+		ChannelDefinition.of("staff", "sc", "&c[Стафф] &f{player}&7: &f{message}", "nextgenchat.channel.staff", false, "server"),
+		ChannelDefinition.of("trade", "trade", "&a[Торговля] &f{player}&7: &f{message}", "", true, "server"),
+		ChannelDefinition.of("world", "wc", "&b[Мир] &f{player}&7: &f{message}", "", true, "world"),
+		ChannelDefinition.of("team", "tc", "&9[Команда] &f{player}&7: &f{message}", "", true, "team")
+	};
+
+	// Compiled on first use rather than in an initializer, so the throwaway instances Gson builds
+	// while loading never compile one.
+	private transient volatile ConfigSnapshot snapshot;
 
 	public static class ChatSettings {
 		public boolean enableLocalChat = true;
@@ -31,6 +52,9 @@ public class NextgenChatConfig {
 		public String globalChatSymbol = "!";
 		public String globalChatFormat = "&6[G] &f{player}: &7{message}";
 		public String localChatFormat = "&7[Локальный] &f{player}: &7{message}";
+		public int inboundQueueCapacity = 8;
+		public int validationThreads = 2;
+		public String queueFullMessage = "&cВы отправляете сообщения слишком быстро.";
 	}
 
 	public static class AntiSpamSettings {
@@ -43,6 +67,12 @@ public class NextgenChatConfig {
 		public String cooldownMessage = "&cПодождите перед отправкой следующего сообщения.";
 		public String repeatMessage = "&cНе повторяйте одно и то же сообщение.";
 		public String floodMessage = "&cВы отправляете сообщения слишком быстро.";
+		public boolean enableSimilarityCheck = true;
+		public int similarityWindow = 5;
+		public int similarityMaxDistance = 10;
+		public int similarityMinLength = 5;
+		public int maxSimilarMessages = 3;
+		public String similarMessage = "&cНе отправляйте почти одинаковые сообщения.";
 	}
 
 	public static class NotificationSettings {
@@ -110,9 +140,121 @@ public class NextgenChatConfig {
 		public boolean defaultCanReceiveModerationNotifications = false;
 		public boolean enablePermissionCache = true;
 		public int permissionCacheTimeout = 300;
+		public int permissionRefreshAheadPercent = 80;
 		public boolean debugPermissionLogging = false;
 	}
 
+	public static class ReloadSettings {
+		public boolean enableHotReload = true;
+		public int hotReloadDebounceMs = 500;
+	}
+
+	/**
+	 * Relay between servers on the same host. Exactly one of them sets {@code hostHub}; all of them
+	 * use the same {@code hubAddress}, either a loopback {@code host:port} or {@code unix:<path>}.
+	 * Frames still queued {@code maxFrameAgeMs} after they were sent, typically while the hub is
+	 * unreachable, are discarded rather than delivered late.
+	 */
+	public static class RelaySettings {
+		public boolean enableRelay = false;
+		public boolean hostHub = false;
+		public String hubAddress = "127.0.0.1:25590";
+		public boolean relayGlobalChat = true;
+		public boolean relayBroadcasts = false;
+		public boolean relayMutes = true;
+		public int queueCapacity = 1024;
+		public int reconnectDelayMs = 2000;
+		public int maxFrameAgeMs = 5000;
+	}
+
+	/**
+	 * In-memory history of recent chat lines for {@code /nextgenchat history} and
+	 * {@code /nextgenchat search}. Changing {@code capacity} clears it.
+	 */
+	public static class HistorySettings {
+		public boolean enableHistory = true;
+		public int capacity = 4096;
+		public int maxResults = 15;
+	}
+
+	/**
+	 * Durable log of every chat line, under {@code directory} in the game directory. Segments rotate
+	 * at {@code segmentSizeMb} and, with {@code rotateDaily}, at midnight.
+	 */
+	public static class ChatLogSettings {
+		public boolean enableChatLog = true;
+		public String directory = "logs/nextgenchat";
+		public int segmentSizeMb = 16;
+		public boolean rotateDaily = true;
+		public boolean compressClosedSegments = true;
+		public int syncIntervalMs = 1000;
+		public int queueCapacity = 8192;
+	}
+
+	/**
+	 * Word filter. Each rule applies {@code action} ({@code block}, {@code censor} or {@code flag})
+	 * to its words; with {@code wholeWord} a word only matches on its own, not inside a longer one.
+	 * Matching ignores case, punctuation, repeated letters, leetspeak and Cyrillic letters that
+	 * look like Latin ones. {@code flag} delivers the message and notifies staff with
+	 * {@code flagNotification}, which follows the staff prefix and takes {@code {player}},
+	 * {@code {message}} and {@code {rule}}.
+	 */
+	public static class FilterSettings {
+		public boolean enableFilter = true;
+		public String censorCharacter = "*";
+		public String blockMessage = "&cСообщение не отправлено: оно содержит запрещённые слова.";
+		public String flagNotification = "&f{player} &7({rule}): &f{message}";
+		public FilterRule[] rules = {
+			FilterRule.of("advertising", "block", false, "discord.gg", "discord.com/invite"),
+			FilterRule.of("profanity", "censor", true)
+		};
+	}
+
+	public static class FilterRule {
+		public String name = "";
+		public String action = "censor";
+		public boolean wholeWord = true;
+		public String[] words = {};
+
+		static FilterRule of(String name, String action, boolean wholeWord, String... words) {
+			FilterRule rule = new FilterRule();
+			rule.name = name;
+			rule.action = action;
+			rule.wholeWord = wholeWord;
+			rule.words = words;
+			return rule;
+		}
+	}
+
+	/**
+	 * A config-defined chat channel. A message reaches it through {@code prefix} at the start of a
+	 * chat line or through {@code /<command> <message>}. {@code scope} is {@code server},
+	 * {@code world} (same world as the sender) or {@code team} (same scoreboard team); a positive
+	 * {@code radius} additionally limits delivery to that many blocks. An empty {@code permission}
+	 * lets everyone read and write.
+	 */
+	public static class ChannelDefinition {
+		public String id = "";
+		public String prefix = "";
+		public String command = "";
+		public String format = "&f{player}&7: &f{message}";
+		public String permission = "";
+		public boolean defaultAllowed = true;
+		public String scope = "server";
+		public int radius = 0;
+
+		static ChannelDefinition of(String id, String command, String format, String permission, boolean defaultAllowed, String scope) {
+			ChannelDefinition channel = new ChannelDefinition();
+			channel.id = id;
+			channel.command = command;
+			channel.format = format;
+			channel.permission = permission;
+			channel.defaultAllowed = defaultAllowed;
+			channel.scope = scope;
+			return channel;
+		}
+	}
+
 	public static class CommandMessages {
 		public String reloadSuccess = "&aКонфиг NextgenChat перезагружен!";
 		public String permissionsCacheCleared = "&aКэш прав NextgenChat очищен!";
@@ -126,42 +268,85 @@ public class NextgenChatConfig {
 		public String statusEnabled = "&aвключен";
 		public String statusDisabled = "&cвыключен";
 		public String playersOnly = "&cЭта команда доступна только игрокам!";
+		public String statsReset = "&aСтатистика NextgenChat сброшена!";
 		public String noMutedPlayers = "&eНет заблокированных игроков";
 		public String mutedPlayersHeader = "&eЗаблокированные игроки:";
 		public String mutedPlayerEntry = "&c{player} - {reason} (осталось: {remaining})";
 		public String chatDisabled = "&cЭтот режим чата отключен на сервере.";
+		public String channelNoTeam = "&cВы не состоите в команде.";
 	}
 
-	public void load() {
-		Path configPath = FabricLoader.getInstance().getConfigDir().resolve(CONFIG_FILE);
-		File configFile = configPath.toFile();
+	/**
+	 * Reads the config file and replaces only the sections whose JSON differs from the current
+	 * ones. A section missing from the file is read as its defaults, so it reverts to them if it
+	 * had been changed; a file that fails to parse changes nothing.
+	 *
+	 * @return the sections that changed
+	 */
+	public Set<Section> load() {
+		File configFile = path().toFile();
+		Set<Section> changed = EnumSet.noneOf(Section.class);
 
 		if (configFile.exists()) {
 			try (FileReader reader = new FileReader(configFile)) {
 				NextgenChatConfig loaded = GSON.fromJson(reader, NextgenChatConfig.class);
 				if (loaded != null) {
-					this.chat = loaded.chat != null ? loaded.chat : this.chat;
-					this.antiSpam = loaded.antiSpam != null ? loaded.antiSpam : this.antiSpam;
-					this.notifications = loaded.notifications != null ? loaded.notifications : this.notifications;
-					this.timing = loaded.timing != null ? loaded.timing : this.timing;
-					this.autoBroadcast = loaded.autoBroadcast != null ? loaded.autoBroadcast : this.autoBroadcast;
-					this.moderation = loaded.moderation != null ? loaded.moderation : this.moderation;
-					this.permissions = loaded.permissions != null ? loaded.permissions : this.permissions;
-					this.commandMessages = loaded.commandMessages != null ? loaded.commandMessages : this.commandMessages;
+					for (Section section : Section.values()) {
+						if (section.replace(this, loaded)) {
+							changed.add(section);
+						}
+					}
 				}
 				NextgenChatMod.LOGGER.info("NextgenChat config loaded");
-			} catch (IOException e) {
+			} catch (IOException | JsonParseException e) {
 				NextgenChatMod.LOGGER.error("Failed to load NextgenChat config", e);
 			}
 		} else {
 			save();
 			NextgenChatMod.LOGGER.info("Created default NextgenChat config");
 		}
+
+		if (!changed.isEmpty()) {
+			synchronized (this) {
+				ConfigSnapshot previous = snapshot;
+				snapshot = previous != null ? ConfigSnapshot.compile(this, previous, changed) : ConfigSnapshot.compile(this);
+			}
+		}
+		return changed;
+	}
+
+	public static Path path() {
+		return FabricLoader.getInstance().getConfigDir().resolve(CONFIG_FILE);
+	}
+
+	/**
+	 * Recompiles the snapshot from the current fields and swaps it in. Call after changing a field
+	 * at runtime; the hot paths never see the fields themselves.
+	 */
+	public synchronized void publish() {
+		snapshot = ConfigSnapshot.compile(this);
+	}
+
+	public ConfigSnapshot snapshot() {
+		ConfigSnapshot current = snapshot;
+		if (current != null) {
+			return current;
+		}
+
+		synchronized (this) {
+			if (snapshot == null) {
+				snapshot = ConfigSnapshot.compile(this);
+			}
+			return snapshot;
+		}
+	}
+
+	public MessageFormats formats() {
+		return snapshot().formats;
 	}
 
 	public void save() {
-		Path configPath = FabricLoader.getInstance().getConfigDir().resolve(CONFIG_FILE);
-		File configFile = configPath.toFile();
+		File configFile = path().toFile();
 
 		try {
 			if (!configFile.exists()) {
@@ -176,4 +361,42 @@ public class NextgenChatConfig {
 			NextgenChatMod.LOGGER.error("Failed to save NextgenChat config", e);
 		}
 	}
+
+	public enum Section {
+		CHAT(config -> config.chat, (config, value) -> config.chat = (ChatSettings) value),
+		ANTI_SPAM(config -> config.antiSpam, (config, value) -> config.antiSpam = (AntiSpamSettings) value),
+		NOTIFICATIONS(config -> config.notifications, (config, value) -> config.notifications = (NotificationSettings) value),
+		TIMING(config -> config.timing, (config, value) -> config.timing = (TimingSettings) value),
+		AUTO_BROADCAST(config -> config.autoBroadcast, (config, value) -> config.autoBroadcast = (AutoBroadcastSettings) value),
+		MODERATION(config -> config.moderation, (config, value) -> config.moderation = (ModerationSettings) value),
+		PERMISSIONS(config -> config.permissions, (config, value) -> config.permissions = (PermissionSettings) value),
+		COMMAND_MESSAGES(config -> config.commandMessages, (config, value) -> config.commandMessages = (CommandMessages) value),
+		RELOAD(config -> config.reload, (config, value) -> config.reload = (ReloadSettings) value),
+		RELAY(config -> config.relay, (config, value) -> config.relay = (RelaySettings) value),
+		HISTORY(config -> config.history, (config, value) -> config.history = (HistorySettings) value),
+		CHAT_LOG(config -> config.chatLog, (config, value) -> config.chatLog = (ChatLogSettings) value),
+		FILTER(config -> config.filter, (config, value) -> config.filter = (FilterSettings) value),
+		CHANNELS(config -> config.channels, (config, value) -> config.channels = (ChannelDefinition[]) value);
+
+		private final Function<NextgenChatConfig, Object> getter;
+		private final BiConsumer<NextgenChatConfig, Object> setter;
+
+		Section(Function<NextgenChatConfig, Object> getter, BiConsumer<NextgenChatConfig, Object> setter) {
+			this.getter = getter;
+			this.setter = setter;
+		}
+
+		/**
+		 * Copies this section from {@code loaded} into {@code target} if it is present and its JSON
+		 * tree differs.
+		 */
+		private boolean replace(NextgenChatConfig target, NextgenChatConfig loaded) {
+			Object next = getter.apply(loaded);
+			if (next == null || GSON.toJsonTree(next).equals(GSON.toJsonTree(getter.apply(target)))) {
+				return false;
+			}
+			setter.accept(target, next);
+			return true;
+		}
+	}
 }
@@ -0,0 +1,36 @@
+package com.nextgenchat.format;
+
+import com.nextgenchat.stats.TickTracker;
+import net.minecraft.server.MinecraftServer;
+
+/**
+ * Context for auto-broadcast lines. Every value is computed only when a template asks for it.
+ */
+public record BroadcastFormatContext(MinecraftServer server, long serverStartedAtMs, TickTracker ticks) {
+	private static final long BYTES_PER_MB = 1024L * 1024L;
+
+	public String serverName() {
+		return server.getMotd() != null ? server.getMotd() : server.getServerModName();
+	}
+
+	public long uptimeMs() {
+		return Math.max(0, System.currentTimeMillis() - serverStartedAtMs);
+	}
+
+	public long usedMemoryMb() {
+		Runtime runtime = Runtime.getRuntime();
+		return (runtime.totalMemory() - runtime.freeMemory()) / BYTES_PER_MB;
+	}
+
+	public long maxMemoryMb() {
+		return Runtime.getRuntime().maxMemory() / BYTES_PER_MB;
+	}
+
+	public double tps(long windowNanos) {
+		return ticks.tps(windowNanos);
+	}
+
+	public TickTracker.Mspt mspt() {
+		return ticks.mspt(TickTracker.WINDOW_1M);
+	}
+}
@@ -0,0 +1,7 @@
+package com.nextgenchat.format;
+
+/**
+ * Context for the staff notice about a message the word filter flagged.
+ */
+public record FilterFormatContext(String player, String message, String rule) {
+}
@@ -0,0 +1,155 @@
+package com.nextgenchat.format;
+
+import com.nextgenchat.config.NextgenChatConfig;
+import com.nextgenchat.stats.TickTracker;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Every configurable message format, compiled once per config load. Replaced as a whole on
+ * {@code /nextgenchat reload}; instances are immutable and safe to share between threads.
+ */
+public final class MessageFormats {
+	public static final Map<String, Placeholder<PlayerFormatContext>> PLAYER_PLACEHOLDERS = Map.of(
+		"{player}", Placeholder.text(context -> context.meta().name()),
+		"{message}", Placeholder.raw(PlayerFormatContext::message),
+		"%player%", Placeholder.text(context -> context.meta().name()),
+		"%player_name%", Placeholder.text(context -> context.meta().name()),
+		"%player_displayname%", Placeholder.text(context -> context.meta().displayName()),
+		"%luckperms_prefix%", Placeholder.text(context -> context.meta().prefix()),
+		"%luckperms_suffix%", Placeholder.text(context -> context.meta().suffix()),
+		"%luckperms_group%", Placeholder.text(context -> context.meta().primaryGroup())
+	);
+
+	public static final Map<String, Placeholder<ModerationFormatContext>> MODERATION_PLACEHOLDERS = Map.of(
+		"{player}", Placeholder.text(ModerationFormatContext::player),
+		"{duration}", Placeholder.text(ModerationFormatContext::duration),
+		"{reason}", Placeholder.text(ModerationFormatContext::reason),
+		"{remaining}", Placeholder.text(ModerationFormatContext::remaining)
+	);
+
+	public static final Map<String, Placeholder<FilterFormatContext>> FILTER_PLACEHOLDERS = Map.of(
+		"{player}", Placeholder.raw(FilterFormatContext::player),
+		"{message}", Placeholder.raw(FilterFormatContext::message),
+		"{rule}", Placeholder.text(FilterFormatContext::rule)
+	);
+
+	public static final Map<String, Placeholder<BroadcastFormatContext>> BROADCAST_PLACEHOLDERS = Map.ofEntries(
+		Map.entry("{online}", (out, context) -> out.append(context.server().getPlayerList().getPlayerCount())),
+		Map.entry("{max_online}", (out, context) -> out.append(context.server().getPlayerList().getMaxPlayers())),
+		Map.entry("{server_name}", Placeholder.text(BroadcastFormatContext::serverName)),
+		Map.entry("{uptime_hours}", (out, context) -> out.append(context.uptimeMs() / (1000L * 60 * 60))),
+		Map.entry("{uptime_minutes}", (out, context) -> out.append((context.uptimeMs() / (1000L * 60)) % 60)),
+		Map.entry("{memory_used}", (out, context) -> out.append(context.usedMemoryMb())),
+		Map.entry("{memory_max}", (out, context) -> out.append(context.maxMemoryMb())),
+		Map.entry("{tps}", tps(TickTracker.WINDOW_1M)),
+		Map.entry("{tps_5s}", tps(TickTracker.WINDOW_5S)),
+		Map.entry("{tps_1m}", tps(TickTracker.WINDOW_1M)),
+		Map.entry("{tps_5m}", tps(TickTracker.WINDOW_5M)),
+		Map.entry("{mspt}", (out, context) -> out.append(String.format("%.1f", context.mspt().mean()))),
+		Map.entry("{mspt_p95}", (out, context) -> out.append(String.format("%.1f", context.mspt().p95()))),
+		Map.entry("{mspt_max}", (out, context) -> out.append(String.format("%.1f", context.mspt().max())))
+	);
+
+	public final MessageTemplate<PlayerFormatContext> globalChat;
+	public final MessageTemplate<PlayerFormatContext> localChat;
+	public final MessageTemplate<PlayerFormatContext> join;
+	public final MessageTemplate<PlayerFormatContext> quit;
+
+	public final MessageTemplate<ModerationFormatContext> mute;
+	public final MessageTemplate<ModerationFormatContext> unmute;
+	public final MessageTemplate<ModerationFormatContext> muteNotification;
+	public final MessageTemplate<ModerationFormatContext> unmuteNotification;
+	public final MessageTemplate<ModerationFormatContext> alreadyMuted;
+	public final MessageTemplate<ModerationFormatContext> notMuted;
+	public final MessageTemplate<ModerationFormatContext> mutedPlayerEntry;
+
+	/**
+	 * Includes the staff notification prefix, so the notice keeps the prefix's style.
+	 */
+	public final MessageTemplate<FilterFormatContext> flagNotification;
+
+	public final List<MessageTemplate<BroadcastFormatContext>> broadcastMessages;
+
+	private MessageFormats(NextgenChatConfig config, MessageFormats previous, Set<NextgenChatConfig.Section> changed) {
+		if (previous == null || changed.contains(NextgenChatConfig.Section.CHAT)) {
+			this.globalChat = player(config.chat.globalChatFormat);
+			this.localChat = player(config.chat.localChatFormat);
+		} else {
+			this.globalChat = previous.globalChat;
+			this.localChat = previous.localChat;
+		}
+
+		if (previous == null || changed.contains(NextgenChatConfig.Section.NOTIFICATIONS)) {
+			this.join = player(config.notifications.joinMessage);
+			this.quit = player(config.notifications.quitMessage);
+		} else {
+			this.join = previous.join;
+			this.quit = previous.quit;
+		}
+
+		if (previous == null || changed.contains(NextgenChatConfig.Section.MODERATION)) {
+			this.mute = moderation(config.moderation.muteMessage);
+			this.unmute = moderation(config.moderation.unmuteMessage);
+			this.muteNotification = moderation(config.moderation.muteNotification);
+			this.unmuteNotification = moderation(config.moderation.unmuteNotification);
+			this.alreadyMuted = moderation(config.moderation.alreadyMutedMessage);
+			this.notMuted = moderation(config.moderation.notMutedMessage);
+		} else {
+			this.mute = previous.mute;
+			this.unmute = previous.unmute;
+			this.muteNotification = previous.muteNotification;
+			this.unmuteNotification = previous.unmuteNotification;
+			this.alreadyMuted = previous.alreadyMuted;
+			this.notMuted = previous.notMuted;
+		}
+
+		this.mutedPlayerEntry = previous == null || changed.contains(NextgenChatConfig.Section.COMMAND_MESSAGES)
+			? moderation(config.commandMessages.mutedPlayerEntry)
+			: previous.mutedPlayerEntry;
+
+		this.flagNotification = previous == null || changed.contains(NextgenChatConfig.Section.MODERATION)
+			|| changed.contains(NextgenChatConfig.Section.FILTER)
+			? MessageTemplate.compile(Objects.toString(config.moderation.staffNotificationPrefix, "")
+				+ Objects.toString(config.filter.flagNotification, ""), FILTER_PLACEHOLDERS)
+			: previous.flagNotification;
+
+		if (previous == null || changed.contains(NextgenChatConfig.Section.AUTO_BROADCAST)) {
+			String[] broadcasts = config.autoBroadcast.broadcastMessages != null
+				? config.autoBroadcast.broadcastMessages
+				: new String[0];
+			this.broadcastMessages = Arrays.stream(broadcasts)
+				.map(message -> MessageTemplate.compile(message, BROADCAST_PLACEHOLDERS))
+				.toList();
+		} else {
+			this.broadcastMessages = previous.broadcastMessages;
+		}
+	}
+
+	public static MessageFormats compile(NextgenChatConfig config) {
+		return new MessageFormats(config, null, Set.of());
+	}
+
+	/**
+	 * Recompiles only the templates whose config section changed and reuses the rest.
+	 */
+	public static MessageFormats compile(NextgenChatConfig config, MessageFormats previous, Set<NextgenChatConfig.Section> changed) {
+		return new MessageFormats(config, previous, changed);
+	}
+
+	private static Placeholder<BroadcastFormatContext> tps(long windowNanos) {
+		return (out, context) -> out.append(String.format("%.1f", context.tps(windowNanos)));
+	}
+
+	private static MessageTemplate<PlayerFormatContext> player(String format) {
+		return MessageTemplate.compile(format, PLAYER_PLACEHOLDERS);
+	}
+
+	private static MessageTemplate<ModerationFormatContext> moderation(String format) {
+		return MessageTemplate.compile(format, MODERATION_PLACEHOLDERS);
+	}
+}
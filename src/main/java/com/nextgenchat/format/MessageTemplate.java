@@ -0,0 +1,128 @@
+package com.nextgenchat.format;
+
+import com.nextgenchat.util.LegacyComponentBuilder;
+import com.nextgenchat.util.TextUtils;
+import net.minecraft.network.chat.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A message format parsed once into literal and placeholder segments. Placeholders are written as
+ * {@code {name}} or {@code %name%}; tokens that are not known to the supplied placeholder set stay
+ * in the output as plain text. Rendering is a single pass into a per-thread builder.
+ */
+public final class MessageTemplate<C> {
+	private static final int MAX_RETAINED_CAPACITY = 4096;
+	private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+	private final String source;
+	private final Placeholder<C>[] segments;
+	private final String constant;
+
+	private MessageTemplate(String source, Placeholder<C>[] segments, String constant) {
+		this.source = source;
+		this.segments = segments;
+		this.constant = constant;
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <C> MessageTemplate<C> compile(String source, Map<String, Placeholder<C>> placeholders) {
+		String text = source != null ? source : "";
+		List<Placeholder<C>> segments = new ArrayList<>();
+		StringBuilder literal = new StringBuilder();
+		boolean dynamic = false;
+
+		int index = 0;
+		while (index < text.length()) {
+			char current = text.charAt(index);
+			int end = -1;
+			if (current == '{') {
+				end = text.indexOf('}', index + 1);
+			} else if (current == '%') {
+				end = text.indexOf('%', index + 1);
+			}
+
+			Placeholder<C> placeholder = end > index ? placeholders.get(text.substring(index, end + 1)) : null;
+			if (placeholder == null) {
+				literal.append(current);
+				index++;
+				continue;
+			}
+
+			flushLiteral(literal, segments);
+			segments.add(placeholder);
+			dynamic = true;
+			index = end + 1;
+		}
+		flushLiteral(literal, segments);
+
+		String constant = dynamic ? null : text;
+		return new MessageTemplate<>(text, segments.toArray(new Placeholder[0]), constant);
+	}
+
+	public String source() {
+		return source;
+	}
+
+	public boolean isConstant() {
+		return constant != null;
+	}
+
+	public String render(C context) {
+		if (constant != null) {
+			return constant;
+		}
+
+		StringBuilder out = BUFFER.get();
+		out.setLength(0);
+		for (Placeholder<C> segment : segments) {
+			segment.appendTo(out, context);
+		}
+
+		String rendered = out.toString();
+		if (out.capacity() > MAX_RETAINED_CAPACITY) {
+			BUFFER.remove();
+		}
+		return rendered;
+	}
+
+	/**
+	 * Renders straight into a styled Component. Literal text and ordinary placeholders are parsed
+	 * for color codes; raw placeholders are inserted as plain text in the style in effect at that
+	 * point. Constant templates return a shared cached component.
+	 */
+	public Component renderComponent(C context) {
+		if (constant != null) {
+			return TextUtils.cached(constant);
+		}
+
+		LegacyComponentBuilder builder = new LegacyComponentBuilder();
+		StringBuilder out = BUFFER.get();
+		for (Placeholder<C> segment : segments) {
+			out.setLength(0);
+			segment.appendTo(out, context);
+			if (segment.isRaw()) {
+				builder.appendPlain(out);
+			} else {
+				builder.append(out);
+			}
+		}
+
+		if (out.capacity() > MAX_RETAINED_CAPACITY) {
+			BUFFER.remove();
+		}
+		return builder.build();
+	}
+
+	private static <C> void flushLiteral(StringBuilder literal, List<Placeholder<C>> segments) {
+		if (literal.isEmpty()) {
+			return;
+		}
+
+		String text = literal.toString();
+		segments.add((out, context) -> out.append(text));
+		literal.setLength(0);
+	}
+}
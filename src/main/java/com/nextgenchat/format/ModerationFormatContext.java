@@ -0,0 +1,10 @@
+package com.nextgenchat.format;
+
+/**
+ * Context for mute/unmute notices. Values that a given message does not use may be {@code null}.
+ */
+public record ModerationFormatContext(String player, String duration, String reason, String remaining) {
+	public static ModerationFormatContext player(String player) {
+		return new ModerationFormatContext(player, null, null, null);
+	}
+}
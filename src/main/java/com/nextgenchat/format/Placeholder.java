@@ -0,0 +1,47 @@
+package com.nextgenchat.format;
+
+import java.util.function.Function;
+
+/**
+ * Resolves one placeholder of a {@link MessageTemplate} straight into the render buffer.
+ * Implementations must not render other templates: the buffer is shared per thread.
+ */
+@FunctionalInterface
+public interface Placeholder<C> {
+	void appendTo(StringBuilder out, C context);
+
+	/**
+	 * Whether {@link MessageTemplate#renderComponent} inserts the value as-is instead of scanning it
+	 * for color codes.
+	 */
+	default boolean isRaw() {
+		return false;
+	}
+
+	/**
+	 * A text placeholder for player input: its {@code &} never becomes formatting.
+	 */
+	static <C> Placeholder<C> raw(Function<C, String> value) {
+		Placeholder<C> text = text(value);
+		return new Placeholder<>() {
+			@Override
+			public void appendTo(StringBuilder out, C context) {
+				text.appendTo(out, context);
+			}
+
+			@Override
+			public boolean isRaw() {
+				return true;
+			}
+		};
+	}
+
+	static <C> Placeholder<C> text(Function<C, String> value) {
+		return (out, context) -> {
+			String resolved = value.apply(context);
+			if (resolved != null) {
+				out.append(resolved);
+			}
+		};
+	}
+}
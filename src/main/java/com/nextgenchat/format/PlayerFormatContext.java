@@ -0,0 +1,12 @@
+package com.nextgenchat.format;
+
+import com.nextgenchat.luckperms.PlayerMeta;
+
+/**
+ * Context for chat lines and join/quit messages. {@code message} is empty outside of chat.
+ */
+public record PlayerFormatContext(PlayerMeta meta, String message) {
+	public PlayerFormatContext(PlayerMeta meta) {
+		this(meta, "");
+	}
+}
@@ -0,0 +1,330 @@
+package com.nextgenchat.log;
+
+import com.nextgenchat.NextgenChatMod;
+import com.nextgenchat.config.NextgenChatConfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Durable chat log. The chat path only offers records to a bounded queue and never waits; when the
+ * queue is full the record is dropped and counted. A background writer appends records to a
+ * preallocated, memory-mapped segment file, which the OS keeps even if the process dies right
+ * after the write, and forces it to disk every {@code syncIntervalMs} against power loss. Segments
+ * rotate when full or when the day changes; closed segments are gzip-compressed in the background.
+ * Segments left open by a crash are compressed on the next start. A segment file is deleted only
+ * after its mapping is released, since a mapped file cannot be deleted on every OS. Files can be
+ * read with {@link ChatLogReader}.
+ */
+public final class ChatLog {
+	static final String SEGMENT_SUFFIX = ".log";
+	static final String COMPRESSED_SUFFIX = ".log.gz";
+	private static final int DRAIN_BATCH = 1024;
+	private static final long STOP_TIMEOUT_MS = 3_000L;
+	private static final long POLL_INTERVAL_MS = 100L;
+	private static final int MAX_SEGMENT_MB = 1024;
+
+	/**
+	 * Segments some instance in this JVM has open or is compressing. After a reload the new
+	 * instance leaves these to their owner instead of compressing them a second time.
+	 */
+	private static final Set<Path> CLAIMED = ConcurrentHashMap.newKeySet();
+
+	private final Path directory;
+	private final long segmentBytes;
+	private final boolean rotateDaily;
+	private final boolean compress;
+	private final long syncIntervalMs;
+	private final BlockingQueue<ChatLogRecord> queue;
+	private final AtomicLong dropped = new AtomicLong();
+	private final ByteBuffer scratch = ByteBuffer.allocate(ChatLogRecord.MAX_BYTES);
+	private final Thread writer;
+	private volatile boolean running;
+
+	private Segment segment;
+
+	public ChatLog(NextgenChatConfig.ChatLogSettings settings, Path gameDir) {
+		this.directory = gameDir.resolve(settings.directory).toAbsolutePath().normalize();
+		this.segmentBytes = Math.clamp(settings.segmentSizeMb, 1, MAX_SEGMENT_MB) * 1024L * 1024L;
+		this.rotateDaily = settings.rotateDaily;
+		this.compress = settings.compressClosedSegments;
+		this.syncIntervalMs = Math.max(1, settings.syncIntervalMs);
+		this.queue = new ArrayBlockingQueue<>(Math.max(1, settings.queueCapacity));
+		this.writer = new Thread(this::run, "NextgenChat-ChatLog");
+		this.writer.setDaemon(true);
+	}
+
+	public void start() {
+		try {
+			Files.createDirectories(directory);
+		} catch (IOException e) {
+			NextgenChatMod.LOGGER.error("Failed to create chat log directory {}", directory, e);
+			return;
+		}
+
+		running = true;
+		writer.start();
+	}
+
+	/**
+	 * Never blocks. Safe to call from any thread.
+	 */
+	public void append(long timestamp, UUID sender, String name, String mode, String text) {
+		if (!running) {
+			return;
+		}
+		if (!queue.offer(new ChatLogRecord(timestamp, sender, name, mode, text)) && dropped.getAndIncrement() % 1000 == 0) {
+			NextgenChatMod.LOGGER.warn("Chat log is not keeping up, {} records dropped so far", dropped.get());
+		}
+	}
+
+	/**
+	 * Writes out what is queued and closes the current segment. It is compressed on the next start.
+	 */
+	public void stop() {
+		if (!running) {
+			return;
+		}
+
+		running = false;
+		try {
+			writer.join(STOP_TIMEOUT_MS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void run() {
+		compressLeftovers();
+
+		List<ChatLogRecord> batch = new ArrayList<>(DRAIN_BATCH);
+		long lastSyncMs = System.currentTimeMillis();
+		boolean dirty = false;
+		try {
+			while (running || !queue.isEmpty()) {
+				ChatLogRecord first = queue.poll(Math.min(syncIntervalMs, POLL_INTERVAL_MS), TimeUnit.MILLISECONDS);
+				if (first != null) {
+					batch.add(first);
+					queue.drainTo(batch, DRAIN_BATCH - 1);
+					for (ChatLogRecord record : batch) {
+						write(record);
+					}
+					batch.clear();
+					dirty = true;
+				}
+
+				long now = System.currentTimeMillis();
+				if (dirty && now - lastSyncMs >= syncIntervalMs) {
+					if (segment != null) {
+						segment.buffer.force();
+					}
+					lastSyncMs = now;
+					dirty = false;
+				}
+			}
+		} catch (InterruptedException e) {
+			// Stopped.
+		} catch (IOException | RuntimeException e) {
+			NextgenChatMod.LOGGER.error("Chat log writer failed, chat is no longer logged", e);
+			running = false;
+		} finally {
+			closeSegment(false);
+		}
+	}
+
+	private void write(ChatLogRecord record) throws IOException {
+		LocalDate day = LocalDate.ofInstant(Instant.ofEpochMilli(record.timestamp()), ZoneId.systemDefault());
+		if (segment != null && rotateDaily && !day.equals(segment.day)) {
+			closeSegment(compress);
+		}
+		if (segment == null) {
+			segment = openSegment(day);
+		}
+		if (!record.writeTo(segment.buffer, scratch)) {
+			closeSegment(compress);
+			segment = openSegment(day);
+			if (!record.writeTo(segment.buffer, scratch)) {
+				NextgenChatMod.LOGGER.warn("Chat log record larger than a segment, skipped");
+			}
+		}
+	}
+
+	private Segment openSegment(LocalDate day) throws IOException {
+		for (int index = 1; ; index++) {
+			String name = String.format("chat-%s-%03d", day, index);
+			Path path = directory.resolve(name + SEGMENT_SUFFIX);
+			if (Files.exists(path) || Files.exists(directory.resolve(name + COMPRESSED_SUFFIX)) || !CLAIMED.add(path)) {
+				continue;
+			}
+
+			// A shared arena, so the compressor thread can release the mapping once it is done.
+			Arena arena = Arena.ofShared();
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				MemorySegment mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes, arena);
+				return new Segment(path, day, arena, (MappedByteBuffer) mapped.asByteBuffer());
+			} catch (IOException | RuntimeException e) {
+				arena.close();
+				CLAIMED.remove(path);
+				throw e;
+			}
+		}
+	}
+
+	private void closeSegment(boolean compressNow) {
+		if (segment == null) {
+			return;
+		}
+
+		Segment closed = segment;
+		segment = null;
+		closed.buffer.force();
+		if (!compressNow) {
+			closed.arena.close();
+			CLAIMED.remove(closed.path);
+			return;
+		}
+
+		int used = closed.buffer.position();
+		Thread compressor = new Thread(() -> {
+			try {
+				boolean compressed;
+				try {
+					compressed = compress(closed.path, closed.buffer, used);
+				} finally {
+					closed.arena.close();
+				}
+				if (compressed) {
+					deleteSegment(closed.path);
+				}
+			} finally {
+				CLAIMED.remove(closed.path);
+			}
+		}, "NextgenChat-ChatLog-Compress");
+		compressor.setDaemon(true);
+		compressor.start();
+	}
+
+	private void compressLeftovers() {
+		if (!compress) {
+			return;
+		}
+
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path path : files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX)).toList()) {
+				if (!CLAIMED.add(path)) {
+					continue;
+				}
+
+				try {
+					compressLeftover(path);
+				} finally {
+					CLAIMED.remove(path);
+				}
+			}
+		} catch (IOException e) {
+			NextgenChatMod.LOGGER.warn("Failed to compress leftover chat log segments", e);
+		}
+	}
+
+	/**
+	 * A segment whose complete {@code .log.gz} already exists was compressed before but could not
+	 * be deleted then; it is only deleted now.
+	 */
+	private static void compressLeftover(Path path) throws IOException {
+		if (isComplete(compressedPath(path))) {
+			deleteSegment(path);
+			return;
+		}
+
+		boolean compressed;
+		try (Arena arena = Arena.ofConfined(); FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena).asByteBuffer();
+			compressed = compress(path, buffer, ChatLogReader.usedBytes(buffer.duplicate()));
+		}
+		if (compressed) {
+			deleteSegment(path);
+		}
+	}
+
+	/**
+	 * Writes the used part of a segment to {@code <name>.log.gz} through a temporary file. The
+	 * caller deletes the segment once its mapping is released.
+	 */
+	private static boolean compress(Path path, ByteBuffer buffer, int used) {
+		Path target = compressedPath(path);
+		Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+		try {
+			try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+				byte[] chunk = new byte[64 * 1024];
+				ByteBuffer data = buffer.duplicate().position(0).limit(used);
+				while (data.hasRemaining()) {
+					int length = Math.min(chunk.length, data.remaining());
+					data.get(chunk, 0, length);
+					out.write(chunk, 0, length);
+				}
+			}
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return true;
+		} catch (IOException e) {
+			NextgenChatMod.LOGGER.warn("Failed to compress chat log segment {}", path, e);
+			return false;
+		}
+	}
+
+	static Path compressedPath(Path segment) {
+		String name = segment.getFileName().toString();
+		return segment.resolveSibling(name.substring(0, name.length() - SEGMENT_SUFFIX.length()) + COMPRESSED_SUFFIX);
+	}
+
+	/**
+	 * Whether a compressed segment exists and decompresses to the end without errors.
+	 */
+	private static boolean isComplete(Path compressed) {
+		if (!Files.exists(compressed)) {
+			return false;
+		}
+
+		try (InputStream in = new GZIPInputStream(Files.newInputStream(compressed))) {
+			in.transferTo(OutputStream.nullOutputStream());
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static void deleteSegment(Path path) {
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			NextgenChatMod.LOGGER.warn("Failed to delete compressed chat log segment {}, retrying on next start", path, e);
+		}
+	}
+
+	private record Segment(Path path, LocalDate day, Arena arena, MappedByteBuffer buffer) {
+	}
+}
@@ -0,0 +1,150 @@
+package com.nextgenchat.log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Offline reader for the chat log, runnable without a server:
+ *
+ * <pre>
+ * java -cp nextgenchat.jar com.nextgenchat.log.ChatLogReader [--dir logs/nextgenchat]
+ *     [--from 2026-01-01T00:00] [--to 2026-01-02] [--player &lt;uuid&gt;]
+ * </pre>
+ *
+ * Times are local, either a date or a date and time; {@code --to} is exclusive. Reads both open
+ * and compressed segments, in name order, and skips segments whose day is outside the range. A
+ * segment left behind next to its compressed copy is read only once, from the copy.
+ */
+public final class ChatLogReader {
+	private ChatLogReader() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		Path directory = Path.of("logs/nextgenchat");
+		long from = Long.MIN_VALUE;
+		long to = Long.MAX_VALUE;
+		UUID player = null;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String value = i + 1 < args.length ? args[i + 1] : null;
+				switch (args[i]) {
+					case "--dir" -> directory = Path.of(require(args[i], value));
+					case "--from" -> from = parseTime(require(args[i], value));
+					case "--to" -> to = parseTime(require(args[i], value));
+					case "--player" -> player = UUID.fromString(require(args[i], value));
+					default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+				}
+				i++;
+			}
+		} catch (IllegalArgumentException | DateTimeParseException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: ChatLogReader [--dir <path>] [--from <time>] [--to <time>] [--player <uuid>]");
+			System.exit(2);
+			return;
+		}
+
+		long fromMs = from;
+		long toMs = to;
+		UUID sender = player;
+		read(directory, fromMs, toMs, record -> {
+			if (record.timestamp() >= fromMs && record.timestamp() < toMs && (sender == null || sender.equals(record.sender()))) {
+				System.out.println(LocalDateTime.ofInstant(Instant.ofEpochMilli(record.timestamp()), ZoneId.systemDefault())
+					+ " [" + record.mode() + "] " + record.name() + " (" + record.sender() + "): " + record.text());
+			}
+		});
+	}
+
+	/**
+	 * Passes every record of the segments that may hold records between {@code fromMs} and
+	 * {@code toMs} to the consumer, without filtering the records themselves.
+	 */
+	public static void read(Path directory, long fromMs, long toMs, Consumer<ChatLogRecord> consumer) throws IOException {
+		List<Path> segments;
+		try (Stream<Path> files = Files.list(directory)) {
+			segments = files
+				.filter(file -> {
+					String name = file.getFileName().toString();
+					return name.endsWith(ChatLog.COMPRESSED_SUFFIX)
+						|| name.endsWith(ChatLog.SEGMENT_SUFFIX) && !Files.exists(ChatLog.compressedPath(file));
+				})
+				.sorted()
+				.toList();
+		}
+
+		for (Path segment : segments) {
+			if (mayContain(segment, fromMs, toMs)) {
+				ByteBuffer buffer = load(segment);
+				ChatLogRecord record;
+				while ((record = ChatLogRecord.readFrom(buffer)) != null) {
+					consumer.accept(record);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Length of the valid records at the start of a segment.
+	 */
+	static int usedBytes(ByteBuffer buffer) {
+		while (ChatLogRecord.readFrom(buffer) != null) {
+			// Advances past each valid record.
+		}
+		return buffer.position();
+	}
+
+	/**
+	 * Segment names start with {@code chat-<date>-}; the day must overlap the requested range.
+	 */
+	private static boolean mayContain(Path segment, long fromMs, long toMs) {
+		String name = segment.getFileName().toString();
+		try {
+			LocalDate day = LocalDate.parse(name.substring("chat-".length(), "chat-".length() + 10));
+			long dayStart = day.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+			long dayEnd = day.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+			return dayEnd > fromMs && dayStart < toMs;
+		} catch (RuntimeException e) {
+			return true;
+		}
+	}
+
+	private static ByteBuffer load(Path segment) throws IOException {
+		if (segment.getFileName().toString().endsWith(ChatLog.COMPRESSED_SUFFIX)) {
+			try (InputStream in = new GZIPInputStream(Files.newInputStream(segment))) {
+				return ByteBuffer.wrap(in.readAllBytes());
+			}
+		}
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	private static long parseTime(String value) {
+		LocalDateTime time = value.contains("T")
+			? LocalDateTime.parse(value)
+			: LocalDate.parse(value).atStartOfDay();
+		return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+
+	private static String require(String option, String value) {
+		if (value == null) {
+			throw new IllegalArgumentException("Missing value for " + option);
+		}
+		return value;
+	}
+}
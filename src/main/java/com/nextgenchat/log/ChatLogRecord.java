@@ -0,0 +1,107 @@
+package com.nextgenchat.log;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * One chat line in the log. On disk a record is
+ *
+ * <pre>
+ * int    length of everything after this field; 0 marks the unused tail of a segment
+ * long   timestamp, epoch milliseconds
+ * long   sender UUID, most significant bits
+ * long   sender UUID, least significant bits
+ * string sender name
+ * string mode: L, G or the channel id
+ * string text
+ * int    CRC32C of the fields between the length and the checksum
+ * </pre>
+ *
+ * where a string is an unsigned short byte length followed by UTF-8. The length is written last,
+ * so a record torn by a crash reads as the end of the segment, and the checksum catches the rest.
+ */
+public record ChatLogRecord(long timestamp, UUID sender, String name, String mode, String text) {
+	static final int MAX_STRING_BYTES = 0xFFFF;
+	static final int MAX_BYTES = Integer.BYTES + 3 * Long.BYTES + 3 * (Short.BYTES + MAX_STRING_BYTES) + Integer.BYTES;
+
+	/**
+	 * Writes the record at the buffer's position, or returns false and leaves the buffer untouched
+	 * if it does not fit.
+	 */
+	boolean writeTo(ByteBuffer buffer, ByteBuffer scratch) {
+		scratch.clear();
+		scratch.putLong(timestamp);
+		scratch.putLong(sender.getMostSignificantBits());
+		scratch.putLong(sender.getLeastSignificantBits());
+		putString(scratch, name);
+		putString(scratch, mode);
+		putString(scratch, text);
+		scratch.flip();
+
+		int payloadLength = scratch.remaining();
+		if (buffer.remaining() < Integer.BYTES + payloadLength + Integer.BYTES) {
+			return false;
+		}
+
+		CRC32C crc = new CRC32C();
+		crc.update(scratch.duplicate());
+		int start = buffer.position();
+		buffer.position(start + Integer.BYTES);
+		buffer.put(scratch);
+		buffer.putInt((int) crc.getValue());
+		buffer.putInt(start, payloadLength + Integer.BYTES);
+		return true;
+	}
+
+	/**
+	 * Reads the record at the buffer's position and advances past it. Returns {@code null} at the
+	 * end of the written data: a zero length, a record running past the buffer or a bad checksum.
+	 */
+	static ChatLogRecord readFrom(ByteBuffer buffer) {
+		if (buffer.remaining() < Integer.BYTES) {
+			return null;
+		}
+
+		int start = buffer.position();
+		int length = buffer.getInt(start);
+		if (length <= Integer.BYTES || length > buffer.remaining() - Integer.BYTES) {
+			return null;
+		}
+
+		ByteBuffer payload = buffer.slice(start + Integer.BYTES, length - Integer.BYTES);
+		CRC32C crc = new CRC32C();
+		crc.update(payload.duplicate());
+		if ((int) crc.getValue() != buffer.getInt(start + length)) {
+			return null;
+		}
+
+		try {
+			ChatLogRecord record = new ChatLogRecord(
+				payload.getLong(),
+				new UUID(payload.getLong(), payload.getLong()),
+				getString(payload),
+				getString(payload),
+				getString(payload)
+			);
+			buffer.position(start + Integer.BYTES + length);
+			return record;
+		} catch (RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static void putString(ByteBuffer buffer, String value) {
+		byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+		int length = Math.min(bytes.length, MAX_STRING_BYTES);
+		buffer.putShort((short) length);
+		buffer.put(bytes, 0, length);
+	}
+
+	private static String getString(ByteBuffer buffer) {
+		byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
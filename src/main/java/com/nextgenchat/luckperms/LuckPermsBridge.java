@@ -1,11 +1,20 @@
 package com.nextgenchat.luckperms;
 
 import com.nextgenchat.NextgenChatMod;
+import com.nextgenchat.stats.ChatStats;
 import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.server.level.ServerPlayer;
 
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Consumer;
 
 /**
@@ -14,21 +23,45 @@ import java.util.function.Consumer;
  */
 public class LuckPermsBridge {
 	private static final String LUCKPERMS_MOD_ID = "luckperms";
-	private static final String PROVIDER_CLASS = "net.luckperms.api.LuckPermsProvider";
 
 	private final boolean available;
+	private volatile Object api;
+	private final Map<UUID, PlayerMeta> metaCache = new ConcurrentHashMap<>();
+	private final Map<UUID, CompletableFuture<PlayerMeta>> pendingMeta = new ConcurrentHashMap<>();
+	private final ExecutorService metaLoader;
 	private Consumer<UUID> cacheInvalidator = uuid -> {};
 
 	public LuckPermsBridge() {
-		this.available = FabricLoader.getInstance().isModLoaded(LUCKPERMS_MOD_ID);
+		this(FabricLoader.getInstance().isModLoaded(LUCKPERMS_MOD_ID));
+	}
+
+	/**
+	 * Skips the Fabric mod lookup, for benchmarks and the load harness that register their own
+	 * provider with {@code LuckPermsProvider}.
+	 */
+	public LuckPermsBridge(boolean luckPermsInstalled) {
+		this.available = luckPermsInstalled && resolveHandles();
+		this.metaLoader = available ? Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "NextgenChat-LuckPerms");
+			thread.setDaemon(true);
+			return thread;
+		}) : null;
 		if (available) {
-			registerCacheInvalidationListener();
 			NextgenChatMod.LOGGER.info("LuckPerms integration enabled");
 		} else {
 			NextgenChatMod.LOGGER.info("LuckPerms not installed, using default permissions from config");
 		}
 	}
 
+	private static boolean resolveHandles() {
+		try {
+			return Handles.PROVIDER_GET != null;
+		} catch (LinkageError e) {
+			NextgenChatMod.LOGGER.warn("Failed to resolve LuckPerms API, falling back to config permissions", e);
+			return false;
+		}
+	}
+
 	public void setCacheInvalidator(Consumer<UUID> cacheInvalidator) {
 		this.cacheInvalidator = cacheInvalidator != null ? cacheInvalidator : uuid -> {};
 	}
@@ -38,157 +71,321 @@ public class LuckPermsBridge {
 	}
 
 	public boolean hasPermission(ServerPlayer player, String permission) {
+		return hasPermission(player.getUUID(), permission);
+	}
+
+	public boolean hasPermission(UUID playerId, String permission) {
 		if (!available) {
 			return false;
 		}
 
-		Object user = getUser(player.getUUID());
+		Object user = getUser(playerId);
 		if (user == null) {
 			return false;
 		}
 
 		try {
-			Object cachedData = invoke(user, "getCachedData");
-			Object permissionData = invoke(cachedData, "getPermissionData");
-			Object result = invoke(permissionData, "checkPermission", permission);
-			return asBoolean(result);
-		} catch (ReflectiveOperationException e) {
-			NextgenChatMod.LOGGER.debug("LuckPerms permission check failed for {} on {}", permission, player.getName().getString());
+			Object cachedData = (Object) Handles.GET_CACHED_DATA.invokeExact(user);
+			Object permissionData = (Object) Handles.GET_PERMISSION_DATA.invokeExact(cachedData);
+			Object result = (Object) Handles.CHECK_PERMISSION.invokeExact(permissionData, permission);
+			return result != null && (boolean) Handles.TRISTATE_AS_BOOLEAN.invokeExact(result);
+		} catch (Throwable e) {
+			NextgenChatMod.LOGGER.debug("LuckPerms permission check failed for {} on {}", permission, playerId);
 			return false;
 		}
 	}
 
-	public String getPrefix(ServerPlayer player) {
-		return getMetaValue(player, "getPrefix");
+	/**
+	 * Returns the cached meta snapshot. If a warm-up is still running its result is awaited,
+	 * otherwise the snapshot is built on the calling thread.
+	 */
+	public PlayerMeta getMeta(ServerPlayer player) {
+		PlayerMeta meta = cachedOrPending(player.getUUID());
+		return meta != null ? meta : refreshMeta(player);
 	}
 
-	public String getSuffix(ServerPlayer player) {
-		return getMetaValue(player, "getSuffix");
+	/**
+	 * Like {@link #getMeta} but never caches and never waits, for the server thread and for players
+	 * that may already have disconnected. A warm-up that has not finished yet is not awaited; the
+	 * snapshot is built on the calling thread instead.
+	 */
+	public PlayerMeta peekMeta(ServerPlayer player) {
+		PlayerMeta meta = metaCache.get(player.getUUID());
+		if (meta == null) {
+			CompletableFuture<PlayerMeta> pending = pendingMeta.get(player.getUUID());
+			meta = pending != null ? pending.getNow(null) : null;
+		}
+		return meta != null ? meta : buildMeta(player.getName().getString(), player.getDisplayName().getString(), player.getUUID());
 	}
 
-	public String getPrimaryGroup(ServerPlayer player) {
-		if (!available) {
-			return "";
+	private PlayerMeta cachedOrPending(UUID playerId) {
+		PlayerMeta meta = metaCache.get(playerId);
+		if (meta != null) {
+			return meta;
 		}
 
-		Object user = getUser(player.getUUID());
-		if (user == null) {
-			return "";
+		CompletableFuture<PlayerMeta> pending = pendingMeta.get(playerId);
+		return pending != null ? pending.join() : null;
+	}
+
+	public PlayerMeta refreshMeta(ServerPlayer player) {
+		PlayerMeta meta = buildMeta(player.getName().getString(), player.getDisplayName().getString(), player.getUUID());
+		metaCache.put(player.getUUID(), meta);
+		return meta;
+	}
+
+	/**
+	 * Builds the meta snapshot for a joining player off the server thread. Names are captured on
+	 * the calling thread; only the LuckPerms lookups run on the loader.
+	 */
+	public void warmMeta(ServerPlayer player) {
+		if (!available) {
+			refreshMeta(player);
+			return;
 		}
 
+		UUID playerId = player.getUUID();
+		String name = player.getName().getString();
+		String displayName = player.getDisplayName().getString();
+		CompletableFuture<PlayerMeta> pending = new CompletableFuture<>();
+		pendingMeta.put(playerId, pending);
 		try {
-			Object group = invoke(user, "getPrimaryGroup");
-			return group != null ? group.toString() : "";
-		} catch (ReflectiveOperationException e) {
-			return "";
+			metaLoader.execute(() -> {
+				PlayerMeta meta = null;
+				try {
+					meta = buildMeta(name, displayName, playerId);
+					// A disconnect while loading removes the pending entry; the result is dropped then.
+					if (pendingMeta.remove(playerId, pending)) {
+						metaCache.put(playerId, meta);
+					}
+				} finally {
+					pending.complete(meta);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			pendingMeta.remove(playerId, pending);
+			pending.complete(null);
 		}
 	}
 
-	public String replacePlaceholders(String text, ServerPlayer player) {
-		String playerName = player.getName().getString();
-		String displayName = player.getDisplayName().getString();
+	public void clearMeta(UUID playerId) {
+		pendingMeta.remove(playerId);
+		metaCache.remove(playerId);
+	}
 
-		if (!available) {
-			return text
-				.replace("%luckperms_prefix%", "")
-				.replace("%luckperms_suffix%", "")
-				.replace("%luckperms_group%", "")
-				.replace("%player%", playerName)
-				.replace("%player_name%", playerName)
-				.replace("%player_displayname%", displayName);
+	/**
+	 * Releases anyone waiting on a warm-up that will now never run; they build the meta inline.
+	 */
+	public void shutdown() {
+		if (metaLoader != null) {
+			metaLoader.shutdownNow();
 		}
+		pendingMeta.values().forEach(pending -> pending.complete(null));
+		pendingMeta.clear();
+	}
 
-		return text
-			.replace("%luckperms_prefix%", getPrefix(player))
-			.replace("%luckperms_suffix%", getSuffix(player))
-			.replace("%luckperms_group%", getPrimaryGroup(player))
-			.replace("%player%", playerName)
-			.replace("%player_name%", playerName)
-			.replace("%player_displayname%", displayName);
+	PlayerMeta buildMeta(String name, String displayName, UUID playerId) {
+		Object user = available ? getUser(playerId) : null;
+		return new PlayerMeta(
+			name,
+			displayName,
+			metaValue(user, MetaField.PREFIX),
+			metaValue(user, MetaField.SUFFIX),
+			primaryGroup(user)
+		);
 	}
 
-	private String getMetaValue(ServerPlayer player, String accessor) {
-		if (!available) {
+	public String getPrefix(ServerPlayer player) {
+		return getMeta(player).prefix();
+	}
+
+	public String getSuffix(ServerPlayer player) {
+		return getMeta(player).suffix();
+	}
+
+	public String getPrimaryGroup(ServerPlayer player) {
+		return getMeta(player).primaryGroup();
+	}
+
+	private void onUserDataRecalculated(Object user, UUID playerId) {
+		metaCache.computeIfPresent(playerId, (id, meta) -> meta.withLuckPerms(
+			metaValue(user, MetaField.PREFIX),
+			metaValue(user, MetaField.SUFFIX),
+			primaryGroup(user)
+		));
+		cacheInvalidator.accept(playerId);
+	}
+
+	private static String primaryGroup(Object user) {
+		if (user == null) {
+			return "";
+		}
+
+		try {
+			String group = (String) Handles.GET_PRIMARY_GROUP.invokeExact(user);
+			return group != null ? group : "";
+		} catch (Throwable e) {
 			return "";
 		}
+	}
 
-		Object user = getUser(player.getUUID());
+	private static String metaValue(Object user, MetaField field) {
 		if (user == null) {
 			return "";
 		}
 
+		MethodHandle accessor = field == MetaField.PREFIX ? Handles.GET_PREFIX : Handles.GET_SUFFIX;
 		try {
-			Object cachedData = invoke(user, "getCachedData");
-			Object metaData = invoke(cachedData, "getMetaData");
-			Object value = invoke(metaData, accessor);
-			return value != null ? value.toString() : "";
-		} catch (ReflectiveOperationException e) {
+			Object cachedData = (Object) Handles.GET_CACHED_DATA.invokeExact(user);
+			Object metaData = (Object) Handles.GET_META_DATA.invokeExact(cachedData);
+			String value = (String) accessor.invokeExact(metaData);
+			return value != null ? value : "";
+		} catch (Throwable e) {
 			return "";
 		}
 	}
 
 	private Object getUser(UUID playerId) {
+		Object luckPerms = api();
+		if (luckPerms == null) {
+			return null;
+		}
+
+		ChatStats.increment(ChatStats.Counter.LUCKPERMS_CALLS);
 		try {
-			Object api = getProvider();
-			Object userManager = invoke(api, "getUserManager");
-			return invoke(userManager, "getUser", playerId);
-		} catch (ReflectiveOperationException e) {
+			Object userManager = (Object) Handles.GET_USER_MANAGER.invokeExact(luckPerms);
+			return (Object) Handles.GET_USER.invokeExact(userManager, playerId);
+		} catch (Throwable e) {
 			return null;
 		}
 	}
 
-	private Object getProvider() throws ReflectiveOperationException {
-		Class<?> providerClass = Class.forName(PROVIDER_CLASS);
-		Method get = providerClass.getMethod("get");
-		return get.invoke(null);
+	/**
+	 * LuckPerms registers its API instance late in startup, so the provider is looked up on first
+	 * use and cached once it exists. The invalidation listener is registered at the same moment.
+	 */
+	private Object api() {
+		Object current = api;
+		if (current != null) {
+			return current;
+		}
+
+		synchronized (this) {
+			if (api == null) {
+				try {
+					Object resolved = (Object) Handles.PROVIDER_GET.invokeExact();
+					registerCacheInvalidationListener(resolved);
+					api = resolved;
+				} catch (Throwable e) {
+					NextgenChatMod.LOGGER.debug("LuckPerms API is not ready yet");
+				}
+			}
+			return api;
+		}
 	}
 
-	private void registerCacheInvalidationListener() {
+	private void registerCacheInvalidationListener(Object luckPerms) {
 		try {
-			Object api = getProvider();
-			Object eventBus = invoke(api, "getEventBus");
-			Class<?> eventClass = Class.forName("net.luckperms.api.event.user.UserDataRecalculateEvent");
-
-			Method subscribe = eventBus.getClass().getMethod("subscribe", Class.class, Consumer.class);
-			subscribe.invoke(eventBus, eventClass, (Consumer<Object>) event -> {
+			Object eventBus = (Object) Handles.GET_EVENT_BUS.invokeExact(luckPerms);
+			Consumer<Object> listener = event -> {
 				try {
-					Object user = invoke(event, "getUser");
-					UUID uuid = (UUID) invoke(user, "getUniqueId");
-					cacheInvalidator.accept(uuid);
-				} catch (ReflectiveOperationException ignored) {
+					Object user = (Object) Handles.EVENT_GET_USER.invokeExact(event);
+					UUID uuid = (UUID) Handles.GET_UNIQUE_ID.invokeExact(user);
+					onUserDataRecalculated(user, uuid);
+				} catch (Throwable ignored) {
 				}
-			});
-		} catch (ReflectiveOperationException e) {
+			};
+			Object ignored = (Object) Handles.SUBSCRIBE.invokeExact(eventBus, Handles.RECALCULATE_EVENT, listener);
+		} catch (Throwable e) {
 			NextgenChatMod.LOGGER.warn("Failed to register LuckPerms cache invalidation listener", e);
 		}
 	}
 
-	private static Object invoke(Object target, String methodName, Object... args) throws ReflectiveOperationException {
-		for (Method method : target.getClass().getMethods()) {
-			if (!method.getName().equals(methodName) || method.getParameterCount() != args.length) {
-				continue;
-			}
+	private enum MetaField {
+		PREFIX,
+		SUFFIX
+	}
 
+	/**
+	 * Every LuckPerms entry point the bridge uses, resolved once against the public API interfaces
+	 * and adapted to {@code Object} signatures. Static finals let the JIT inline the handles. The
+	 * holder is only initialised when LuckPerms is installed.
+	 */
+	private static final class Handles {
+		private static final Class<?> RECALCULATE_EVENT;
+		private static final MethodHandle PROVIDER_GET;
+		private static final MethodHandle GET_USER_MANAGER;
+		private static final MethodHandle GET_EVENT_BUS;
+		private static final MethodHandle GET_USER;
+		private static final MethodHandle GET_CACHED_DATA;
+		private static final MethodHandle GET_PRIMARY_GROUP;
+		private static final MethodHandle GET_UNIQUE_ID;
+		private static final MethodHandle GET_PERMISSION_DATA;
+		private static final MethodHandle GET_META_DATA;
+		private static final MethodHandle CHECK_PERMISSION;
+		private static final MethodHandle TRISTATE_AS_BOOLEAN;
+		private static final MethodHandle GET_PREFIX;
+		private static final MethodHandle GET_SUFFIX;
+		private static final MethodHandle SUBSCRIBE;
+		private static final MethodHandle EVENT_GET_USER;
+
+		static {
 			try {
-				return method.invoke(target, args);
-			} catch (IllegalArgumentException ignored) {
-				// Try next overload
+				MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+				Class<?> provider = load("net.luckperms.api.LuckPermsProvider");
+				Class<?> luckPerms = load("net.luckperms.api.LuckPerms");
+				Class<?> userManager = load("net.luckperms.api.model.user.UserManager");
+				Class<?> user = load("net.luckperms.api.model.user.User");
+				Class<?> cachedDataManager = load("net.luckperms.api.cacheddata.CachedDataManager");
+				Class<?> permissionData = load("net.luckperms.api.cacheddata.CachedPermissionData");
+				Class<?> metaData = load("net.luckperms.api.cacheddata.CachedMetaData");
+				Class<?> tristate = load("net.luckperms.api.util.Tristate");
+				Class<?> eventBus = load("net.luckperms.api.event.EventBus");
+				Class<?> subscription = load("net.luckperms.api.event.EventSubscription");
+				RECALCULATE_EVENT = load("net.luckperms.api.event.user.UserDataRecalculateEvent");
+
+				PROVIDER_GET = lookup.findStatic(provider, "get", MethodType.methodType(luckPerms))
+					.asType(MethodType.methodType(Object.class));
+				GET_USER_MANAGER = getter(lookup, luckPerms, "getUserManager", userManager);
+				GET_EVENT_BUS = getter(lookup, luckPerms, "getEventBus", eventBus);
+				GET_USER = lookup.findVirtual(userManager, "getUser", MethodType.methodType(user, UUID.class))
+					.asType(MethodType.methodType(Object.class, Object.class, UUID.class));
+				GET_CACHED_DATA = getter(lookup, user, "getCachedData", cachedDataManager);
+				GET_PRIMARY_GROUP = getter(lookup, user, "getPrimaryGroup", String.class);
+				GET_UNIQUE_ID = getter(lookup, user, "getUniqueId", UUID.class);
+				GET_PERMISSION_DATA = getter(lookup, cachedDataManager, "getPermissionData", permissionData);
+				GET_META_DATA = getter(lookup, cachedDataManager, "getMetaData", metaData);
+				CHECK_PERMISSION = lookup.findVirtual(permissionData, "checkPermission", MethodType.methodType(tristate, String.class))
+					.asType(MethodType.methodType(Object.class, Object.class, String.class));
+				TRISTATE_AS_BOOLEAN = getter(lookup, tristate, "asBoolean", boolean.class);
+				GET_PREFIX = getter(lookup, metaData, "getPrefix", String.class);
+				GET_SUFFIX = getter(lookup, metaData, "getSuffix", String.class);
+				SUBSCRIBE = lookup.findVirtual(eventBus, "subscribe", MethodType.methodType(subscription, Class.class, Consumer.class))
+					.asType(MethodType.methodType(Object.class, Object.class, Class.class, Consumer.class));
+				EVENT_GET_USER = getter(lookup, RECALCULATE_EVENT, "getUser", user);
+			} catch (ReflectiveOperationException e) {
+				throw new ExceptionInInitializerError(e);
 			}
 		}
 
-		throw new NoSuchMethodException(target.getClass().getName() + "#" + methodName);
-	}
+		private Handles() {
+		}
 
-	private static boolean asBoolean(Object result) throws ReflectiveOperationException {
-		if (result == null) {
-			return false;
+		private static Class<?> load(String name) throws ClassNotFoundException {
+			return Class.forName(name, false, LuckPermsBridge.class.getClassLoader());
 		}
 
-		try {
-			Method asBoolean = result.getClass().getMethod("asBoolean");
-			return (boolean) asBoolean.invoke(result);
-		} catch (NoSuchMethodException ignored) {
-			return "TRUE".equalsIgnoreCase(result.toString());
+		/**
+		 * Resolves a no-argument instance method and erases it to {@code (Object)Object}, or
+		 * {@code (Object)String}/{@code (Object)boolean} for non-reference-erased return types.
+		 */
+		private static MethodHandle getter(MethodHandles.Lookup lookup, Class<?> owner, String name, Class<?> returnType)
+			throws ReflectiveOperationException {
+			Class<?> erased = returnType == String.class || returnType == UUID.class || returnType.isPrimitive()
+				? returnType
+				: Object.class;
+			return lookup.findVirtual(owner, name, MethodType.methodType(returnType))
+				.asType(MethodType.methodType(erased, Object.class));
 		}
 	}
 }
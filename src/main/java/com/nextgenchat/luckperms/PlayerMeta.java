@@ -0,0 +1,11 @@
+package com.nextgenchat.luckperms;
+
+/**
+ * Immutable per-player snapshot of everything chat formatting needs. Built on join and rebuilt
+ * when LuckPerms recalculates the user's data, so formatting never calls into LuckPerms.
+ */
+public record PlayerMeta(String name, String displayName, String prefix, String suffix, String primaryGroup) {
+	public PlayerMeta withLuckPerms(String prefix, String suffix, String primaryGroup) {
+		return new PlayerMeta(name, displayName, prefix, suffix, primaryGroup);
+	}
+}
@@ -13,7 +13,7 @@ public class ChatMixin {
 	@Inject(method = "handleChat", at = @At("HEAD"), cancellable = true)
 	private void nextgenchat$handleChat(ServerboundChatPacket packet, CallbackInfo ci) {
 		ServerGamePacketListenerImpl handler = (ServerGamePacketListenerImpl) (Object) this;
-		NextgenChatMod.getInstance().chat().handleMessage(handler.player, packet.message());
+		NextgenChatMod.getInstance().chatPipeline().submit(handler.player, packet.message());
 		ci.cancel();
 	}
 }
@@ -0,0 +1,53 @@
+package com.nextgenchat.mixin;
+
+import com.nextgenchat.NextgenChatMod;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.ServerScoreboard;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.scores.PlayerTeam;
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+/**
+ * Reports team changes to the channel membership, which buckets team channels by team.
+ */
+@Mixin(ServerScoreboard.class)
+public class ScoreboardMixin {
+	@Shadow
+	@Final
+	private MinecraftServer server;
+
+	@Inject(method = "addPlayerToTeam", at = @At("RETURN"))
+	private void nextgenchat$onTeamJoin(String playerName, PlayerTeam team, CallbackInfoReturnable<Boolean> cir) {
+		nextgenchat$teamChanged(playerName);
+	}
+
+	@Inject(method = "removePlayerFromTeam", at = @At("RETURN"))
+	private void nextgenchat$onTeamLeave(String playerName, PlayerTeam team, CallbackInfo ci) {
+		nextgenchat$teamChanged(playerName);
+	}
+
+	/**
+	 * {@code removePlayerTeam} lives on {@code Scoreboard}; this callback is the part
+	 * {@code ServerScoreboard} declares. The team still lists its former members here.
+	 */
+	@Inject(method = "onTeamRemoved", at = @At("RETURN"))
+	private void nextgenchat$onTeamRemoved(PlayerTeam team, CallbackInfo ci) {
+		for (String playerName : team.getPlayers()) {
+			nextgenchat$teamChanged(playerName);
+		}
+	}
+
+	private void nextgenchat$teamChanged(String playerName) {
+		NextgenChatMod mod = NextgenChatMod.getInstance();
+		ServerPlayer player = server.getPlayerList().getPlayerByName(playerName);
+		if (mod != null && player != null) {
+			mod.chat().channels().moved(player);
+		}
+	}
+}
@@ -1,39 +1,59 @@
 package com.nextgenchat.moderation;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.nextgenchat.NextgenChatMod;
 import com.nextgenchat.config.NextgenChatConfig;
+import com.nextgenchat.format.MessageFormats;
+import com.nextgenchat.format.ModerationFormatContext;
 import com.nextgenchat.permission.PermissionService;
+import com.nextgenchat.stats.ChatStats;
+import com.nextgenchat.util.ChatFanout;
+import com.nextgenchat.util.LegacyComponentBuilder;
 import com.nextgenchat.util.TextUtils;
 import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.protocol.game.ClientboundSystemChatPacket;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
 
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class ModerationService {
-	private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
 	private static final String MUTE_DATA_FILE = "nextgenchat_mutes.json";
+	private static final long JOURNAL_FLUSH_TIMEOUT_MS = 3_000L;
 	private static final Pattern TIME_PATTERN = Pattern.compile("(\\d+)([hdmw])");
 	public static final UUID CONSOLE_ACTOR_ID = new UUID(0, 0);
 
 	private final NextgenChatConfig config;
 	private final PermissionService permissions;
 	private final ConcurrentHashMap<UUID, MuteData> mutedPlayers = new ConcurrentHashMap<>();
+	private final MuteJournal journal;
+	private volatile MuteListener muteListener;
 
 	public ModerationService(NextgenChatConfig config, PermissionService permissions) {
+		this(config, permissions, FabricLoader.getInstance().getGameDir());
+	}
+
+	public ModerationService(NextgenChatConfig config, PermissionService permissions, Path dataDir) {
 		this.config = config;
 		this.permissions = permissions;
+		this.journal = new MuteJournal(dataDir.resolve(MUTE_DATA_FILE), () -> List.copyOf(mutedPlayers.values()));
 		loadMuteData();
+		if (config.moderation.saveMuteData) {
+			journal.start();
+		}
+	}
+
+	/**
+	 * Notified of mutes and unmutes issued on this server, for replication to sibling servers.
+	 */
+	public void setMuteListener(MuteListener listener) {
+		this.muteListener = listener;
 	}
 
 	public boolean mutePlayer(ServerPlayer target, Actor actor, String duration, String reason) {
@@ -42,8 +62,8 @@ public class ModerationService {
 		}
 
 		UUID targetId = target.getUUID();
-		if (mutedPlayers.containsKey(targetId)) {
-			actor.sendMessage(config.moderation.alreadyMutedMessage.replace("{player}", target.getName().getString()));
+		if (getMuteData(targetId) != null) {
+			actor.sendMessage(config.formats().alreadyMuted.render(ModerationFormatContext.player(target.getName().getString())));
 			return false;
 		}
 
@@ -69,7 +89,11 @@ public class ModerationService {
 		);
 
 		mutedPlayers.put(targetId, muteData);
-		persistIfNeeded();
+		recordMute(muteData);
+		MuteListener listener = muteListener;
+		if (listener != null) {
+			listener.onMute(muteData);
+		}
 
 		notifyMute(target, actor, muteData);
 
@@ -87,13 +111,17 @@ public class ModerationService {
 		}
 
 		UUID targetId = target.getUUID();
-		if (!mutedPlayers.containsKey(targetId)) {
-			actor.sendMessage(config.moderation.notMutedMessage.replace("{player}", target.getName().getString()));
+		if (getMuteData(targetId) == null) {
+			actor.sendMessage(config.formats().notMuted.render(ModerationFormatContext.player(target.getName().getString())));
 			return false;
 		}
 
 		MuteData removed = mutedPlayers.remove(targetId);
-		persistIfNeeded();
+		recordUnmute(targetId);
+		MuteListener listener = muteListener;
+		if (listener != null) {
+			listener.onUnmute(targetId);
+		}
 		notifyUnmute(target, actor, removed);
 
 		if (config.moderation.logMuteActions) {
@@ -103,23 +131,53 @@ public class ModerationService {
 		return true;
 	}
 
-	public boolean isMuted(UUID playerId) {
-		if (!config.moderation.enableModeration) {
-			return false;
+	/**
+	 * Applies a mute issued on a sibling server. The target and staff there have already been
+	 * notified, so this only records it.
+	 */
+	public void applyRemoteMute(MuteData muteData) {
+		if (!config.moderation.enableModeration || System.currentTimeMillis() >= muteData.expiresAt()) {
+			return;
 		}
 
-		MuteData muteData = mutedPlayers.get(playerId);
-		if (muteData == null) {
-			return false;
+		mutedPlayers.put(muteData.playerUUID, muteData);
+		recordMute(muteData);
+		if (config.moderation.logMuteActions) {
+			NextgenChatMod.LOGGER.info("Player {} muted on another server by {}", muteData.playerName, muteData.moderatorName);
+		}
+	}
+
+	public void applyRemoteUnmute(UUID playerId) {
+		MuteData removed = mutedPlayers.remove(playerId);
+		if (removed == null) {
+			return;
+		}
+
+		recordUnmute(playerId);
+		if (config.moderation.logMuteActions) {
+			NextgenChatMod.LOGGER.info("Player {} unmuted on another server", removed.playerName);
 		}
+	}
+
+	public boolean isMuted(UUID playerId) {
+		long start = ChatStats.start();
+		try {
+			return checkMuted(playerId);
+		} finally {
+			ChatStats.record(ChatStats.Stage.MUTE_CHECK, start);
+		}
+	}
 
-		if (System.currentTimeMillis() >= muteData.expiresAt()) {
-			mutedPlayers.remove(playerId);
-			persistIfNeeded();
+	/**
+	 * Runs on chat workers, so an expired mute is only ignored here; {@link #cleanupExpiredMutes()}
+	 * removes and journals it on the server thread, where mutes are issued.
+	 */
+	private boolean checkMuted(UUID playerId) {
+		if (!config.snapshot().moderationEnabled) {
 			return false;
 		}
 
-		return true;
+		return getMuteData(playerId) != null;
 	}
 
 	public MuteData getMuteData(UUID playerId) {
@@ -139,17 +197,16 @@ public class ModerationService {
 
 	public void cleanupExpiredMutes() {
 		long now = System.currentTimeMillis();
-		boolean removed = mutedPlayers.entrySet().removeIf(entry -> {
+		mutedPlayers.entrySet().removeIf(entry -> {
 			boolean expired = now >= entry.getValue().expiresAt();
-			if (expired && config.moderation.logMuteActions) {
-				NextgenChatMod.LOGGER.info("Mute expired for player: {}", entry.getValue().playerName);
+			if (expired) {
+				recordUnmute(entry.getKey());
+				if (config.moderation.logMuteActions) {
+					NextgenChatMod.LOGGER.info("Mute expired for player: {}", entry.getValue().playerName);
+				}
 			}
 			return expired;
 		});
-
-		if (removed) {
-			persistIfNeeded();
-		}
 	}
 
 	public String formatDuration(long milliseconds) {
@@ -191,44 +248,55 @@ public class ModerationService {
 	}
 
 	private void notifyMute(ServerPlayer target, Actor actor, MuteData muteData) {
-		long durationMs = muteData.duration;
-		target.sendSystemMessage(TextUtils.toComponent(config.moderation.muteMessage
-			.replace("{duration}", formatDuration(durationMs))
-			.replace("{reason}", muteData.reason)));
-
-		String notification = config.moderation.muteNotification
-			.replace("{player}", target.getName().getString())
-			.replace("{duration}", formatDuration(durationMs));
+		MessageFormats formats = config.formats();
+		ModerationFormatContext context = new ModerationFormatContext(
+			target.getName().getString(), formatDuration(muteData.duration), muteData.reason, null);
+		target.sendSystemMessage(formats.mute.renderComponent(context));
+
+		String notification = formats.muteNotification.render(context);
 		actor.sendMessage(notification);
 		broadcastStaffNotification(notification, target.level().getServer());
 	}
 
 	private void notifyUnmute(ServerPlayer target, Actor actor, MuteData muteData) {
-		target.sendSystemMessage(TextUtils.toComponent(config.moderation.unmuteMessage));
+		MessageFormats formats = config.formats();
+		ModerationFormatContext context = ModerationFormatContext.player(target.getName().getString());
+		target.sendSystemMessage(formats.unmute.renderComponent(context));
 
-		String notification = config.moderation.unmuteNotification
-			.replace("{player}", target.getName().getString());
+		String notification = formats.unmuteNotification.render(context);
 		actor.sendMessage(notification);
 		broadcastStaffNotification(notification, target.level().getServer());
 	}
 
-	private void broadcastStaffNotification(String notification, net.minecraft.server.MinecraftServer server) {
+	private void broadcastStaffNotification(String notification, MinecraftServer server) {
 		if (!config.moderation.notifyStaffOnMute || server == null) {
 			return;
 		}
+		notifyStaff(server, staffNotification().append(notification).build());
+	}
+
+	/**
+	 * A builder that already holds the staff prefix, so the rest of the line keeps its style.
+	 */
+	private LegacyComponentBuilder staffNotification() {
+		return new LegacyComponentBuilder().append(config.moderation.staffNotificationPrefix);
+	}
 
-		String staffMessage = config.moderation.staffNotificationPrefix + notification;
+	/**
+	 * Sends a line that starts with the staff prefix to everyone who receives moderation
+	 * notifications. Server thread only.
+	 */
+	public void notifyStaff(MinecraftServer server, Component notification) {
+		ClientboundSystemChatPacket packet = ChatFanout.packet(notification);
 		for (ServerPlayer player : server.getPlayerList().getPlayers()) {
 			if (permissions.canReceiveModerationNotifications(player)) {
-				player.sendSystemMessage(TextUtils.toComponent(staffMessage));
+				ChatFanout.send(player, packet);
 			}
 		}
 	}
 
-	private void persistIfNeeded() {
-		if (config.moderation.saveMuteData) {
-			saveMuteData();
-		}
+	public void shutdown() {
+		journal.close(JOURNAL_FLUSH_TIMEOUT_MS);
 	}
 
 	private void loadMuteData() {
@@ -236,45 +304,23 @@ public class ModerationService {
 			return;
 		}
 
-		Path dataPath = FabricLoader.getInstance().getGameDir().resolve(MUTE_DATA_FILE);
-		File dataFile = dataPath.toFile();
-		if (!dataFile.exists()) {
-			return;
-		}
-
-		try (FileReader reader = new FileReader(dataFile)) {
-			MuteData[] loadedMutes = GSON.fromJson(reader, MuteData[].class);
-			if (loadedMutes == null) {
-				return;
-			}
+		journal.replay(mutedPlayers);
+		long now = System.currentTimeMillis();
+		mutedPlayers.values().removeIf(muteData -> now >= muteData.expiresAt());
+		NextgenChatMod.LOGGER.info("Loaded {} active mutes", mutedPlayers.size());
+	}
 
-			long now = System.currentTimeMillis();
-			for (MuteData muteData : loadedMutes) {
-				if (now < muteData.expiresAt()) {
-					mutedPlayers.put(muteData.playerUUID, muteData);
-				}
-			}
-			NextgenChatMod.LOGGER.info("Loaded {} active mutes", mutedPlayers.size());
-		} catch (IOException e) {
-			NextgenChatMod.LOGGER.error("Failed to load mute data", e);
+	private void recordMute(MuteData muteData) {
+		if (config.moderation.saveMuteData) {
+			journal.start();
+			journal.recordMute(muteData);
 		}
 	}
 
-	private void saveMuteData() {
-		Path dataPath = FabricLoader.getInstance().getGameDir().resolve(MUTE_DATA_FILE);
-		File dataFile = dataPath.toFile();
-
-		try {
-			if (!dataFile.exists()) {
-				dataFile.getParentFile().mkdirs();
-				dataFile.createNewFile();
-			}
-
-			try (FileWriter writer = new FileWriter(dataFile)) {
-				GSON.toJson(mutedPlayers.values().toArray(new MuteData[0]), writer);
-			}
-		} catch (IOException e) {
-			NextgenChatMod.LOGGER.error("Failed to save mute data", e);
+	private void recordUnmute(UUID playerId) {
+		if (config.moderation.saveMuteData) {
+			journal.start();
+			journal.recordUnmute(playerId);
 		}
 	}
 
@@ -306,6 +352,12 @@ public class ModerationService {
 		}
 	}
 
+	public interface MuteListener {
+		void onMute(MuteData muteData);
+
+		void onUnmute(UUID playerId);
+	}
+
 	public interface Actor {
 		UUID id();
 
@@ -346,7 +398,7 @@ public class ModerationService {
 
 				@Override
 				public void sendMessage(String message) {
-					NextgenChatMod.LOGGER.info("[Console] {}", TextUtils.applyColorCodes(message).replace("§", "&"));
+					NextgenChatMod.LOGGER.info("[Console] {}", message.replace('§', '&'));
 				}
 			};
 		}
@@ -0,0 +1,299 @@
+package com.nextgenchat.moderation;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.nextgenchat.NextgenChatMod;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Append-only mute journal with periodic snapshot compaction. Callers only enqueue; a single
+ * background writer appends JSON lines to the journal, fsyncs each batch, and from time to time
+ * rewrites the snapshot atomically and truncates the journal. Replaying a journal on top of a
+ * snapshot is idempotent, so a crash at any point loses at most the batch being written.
+ */
+public class MuteJournal {
+	private static final Gson SNAPSHOT_GSON = new GsonBuilder().setPrettyPrinting().create();
+	private static final Gson JOURNAL_GSON = new Gson();
+	private static final int COMPACT_AFTER_ENTRIES = 256;
+	private static final long COMPACT_INTERVAL_MS = 60_000L;
+	private static final long POLL_INTERVAL_MS = 1_000L;
+
+	private final Path snapshotFile;
+	private final Path journalFile;
+	private final Path tempFile;
+	private final Supplier<Collection<ModerationService.MuteData>> snapshotSource;
+	private final BlockingQueue<JournalEntry> queue = new LinkedBlockingQueue<>();
+	private final Thread writer;
+
+	private FileChannel journalChannel;
+	private int entriesSinceCompaction;
+	private boolean compactOnStart;
+	private long lastCompactionAtMs = System.currentTimeMillis();
+
+	public MuteJournal(Path snapshotFile, Supplier<Collection<ModerationService.MuteData>> snapshotSource) {
+		this.snapshotFile = snapshotFile;
+		this.journalFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".journal");
+		this.tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+		this.snapshotSource = snapshotSource;
+		this.writer = new Thread(this::run, "NextgenChat-MuteJournal");
+		this.writer.setDaemon(true);
+	}
+
+	/**
+	 * Loads the snapshot, then applies every complete journal line on top of it. A torn last line
+	 * from a crash ends the replay instead of failing it. Any replayed journal is folded into a
+	 * fresh snapshot as soon as the writer starts, so new entries never follow a torn line.
+	 */
+	public void replay(Map<UUID, ModerationService.MuteData> target) {
+		if (Files.exists(snapshotFile)) {
+			try (Reader reader = Files.newBufferedReader(snapshotFile, StandardCharsets.UTF_8)) {
+				ModerationService.MuteData[] snapshot = SNAPSHOT_GSON.fromJson(reader, ModerationService.MuteData[].class);
+				if (snapshot != null) {
+					for (ModerationService.MuteData muteData : snapshot) {
+						target.put(muteData.playerUUID, muteData);
+					}
+				}
+			} catch (IOException | JsonParseException e) {
+				NextgenChatMod.LOGGER.error("Failed to load mute snapshot", e);
+			}
+		}
+
+		if (!Files.exists(journalFile)) {
+			return;
+		}
+
+		int replayed = 0;
+		try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isBlank()) {
+					continue;
+				}
+
+				JournalEntry entry;
+				try {
+					entry = JOURNAL_GSON.fromJson(line, JournalEntry.class);
+				} catch (JsonParseException e) {
+					NextgenChatMod.LOGGER.warn("Mute journal ends with an incomplete entry, ignoring the rest");
+					break;
+				}
+
+				if (entry == null || entry.op == null) {
+					continue;
+				}
+				entry.applyTo(target);
+				replayed++;
+			}
+		} catch (IOException e) {
+			NextgenChatMod.LOGGER.error("Failed to replay mute journal", e);
+		}
+
+		entriesSinceCompaction = replayed;
+		compactOnStart = true;
+	}
+
+	/**
+	 * Starts the writer on first use; later calls do nothing. Not thread-safe: mutes are recorded on
+	 * the server thread.
+	 */
+	public void start() {
+		if (writer.getState() == Thread.State.NEW) {
+			writer.start();
+		}
+	}
+
+	public void recordMute(ModerationService.MuteData muteData) {
+		queue.offer(JournalEntry.mute(muteData));
+	}
+
+	public void recordUnmute(UUID playerId) {
+		queue.offer(JournalEntry.unmute(playerId));
+	}
+
+	/**
+	 * Flushes pending entries, writes a final snapshot and waits at most {@code timeoutMs} for the
+	 * writer to finish.
+	 */
+	public void close(long timeoutMs) {
+		if (!writer.isAlive()) {
+			return;
+		}
+
+		queue.offer(JournalEntry.STOP);
+		try {
+			writer.join(timeoutMs);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (writer.isAlive()) {
+			NextgenChatMod.LOGGER.warn("Mute journal did not flush within {} ms", timeoutMs);
+			writer.interrupt();
+		}
+	}
+
+	private void run() {
+		if (compactOnStart) {
+			try {
+				compact();
+			} catch (IOException e) {
+				NextgenChatMod.LOGGER.error("Failed to compact mute journal", e);
+			}
+		}
+
+		List<JournalEntry> batch = new ArrayList<>();
+		boolean stopping = false;
+		while (!stopping) {
+			try {
+				JournalEntry first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+				if (first != null) {
+					batch.add(first);
+					queue.drainTo(batch);
+				}
+			} catch (InterruptedException e) {
+				stopping = true;
+			}
+
+			int stopIndex = batch.indexOf(JournalEntry.STOP);
+			if (stopIndex >= 0) {
+				stopping = true;
+				batch.subList(stopIndex, batch.size()).clear();
+			}
+
+			try {
+				if (!batch.isEmpty()) {
+					append(batch);
+					entriesSinceCompaction += batch.size();
+					batch.clear();
+				}
+
+				boolean due = entriesSinceCompaction >= COMPACT_AFTER_ENTRIES
+					|| (entriesSinceCompaction > 0 && System.currentTimeMillis() - lastCompactionAtMs >= COMPACT_INTERVAL_MS);
+				if (due || (stopping && entriesSinceCompaction > 0)) {
+					compact();
+				}
+			} catch (IOException e) {
+				NextgenChatMod.LOGGER.error("Failed to write mute journal", e);
+				batch.clear();
+			}
+		}
+
+		closeChannel();
+	}
+
+	private void append(List<JournalEntry> batch) throws IOException {
+		StringBuilder lines = new StringBuilder();
+		for (JournalEntry entry : batch) {
+			lines.append(JOURNAL_GSON.toJson(entry)).append('\n');
+		}
+
+		FileChannel channel = journalChannel();
+		ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		channel.force(false);
+	}
+
+	/**
+	 * Every journal entry written so far is already reflected in the live map, so the snapshot is
+	 * taken from the map. Entries enqueued concurrently are appended after the truncation and
+	 * re-applying them on replay is harmless.
+	 */
+	private void compact() throws IOException {
+		ModerationService.MuteData[] snapshot = snapshotSource.get().toArray(new ModerationService.MuteData[0]);
+		Files.createDirectories(snapshotFile.toAbsolutePath().getParent());
+		try (Writer out = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+			SNAPSHOT_GSON.toJson(snapshot, out);
+		}
+		try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+			channel.force(true);
+		}
+		try {
+			Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		FileChannel channel = journalChannel();
+		channel.truncate(0);
+		channel.force(true);
+
+		entriesSinceCompaction = 0;
+		lastCompactionAtMs = System.currentTimeMillis();
+	}
+
+	private FileChannel journalChannel() throws IOException {
+		if (journalChannel == null || !journalChannel.isOpen()) {
+			Files.createDirectories(journalFile.toAbsolutePath().getParent());
+			journalChannel = FileChannel.open(journalFile,
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		}
+		return journalChannel;
+	}
+
+	private void closeChannel() {
+		if (journalChannel == null) {
+			return;
+		}
+
+		try {
+			journalChannel.close();
+		} catch (IOException e) {
+			NextgenChatMod.LOGGER.warn("Failed to close mute journal", e);
+		}
+	}
+
+	private static final class JournalEntry {
+		private static final JournalEntry STOP = new JournalEntry();
+
+		private String op;
+		private ModerationService.MuteData mute;
+		private UUID playerUUID;
+
+		static JournalEntry mute(ModerationService.MuteData muteData) {
+			JournalEntry entry = new JournalEntry();
+			entry.op = "mute";
+			entry.mute = muteData;
+			entry.playerUUID = muteData.playerUUID;
+			return entry;
+		}
+
+		static JournalEntry unmute(UUID playerId) {
+			JournalEntry entry = new JournalEntry();
+			entry.op = "unmute";
+			entry.playerUUID = playerId;
+			return entry;
+		}
+
+		void applyTo(Map<UUID, ModerationService.MuteData> target) {
+			if ("mute".equals(op) && mute != null) {
+				target.put(mute.playerUUID, mute);
+			} else if ("unmute".equals(op) && playerUUID != null) {
+				target.remove(playerUUID);
+			}
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.nextgenchat.permission;
+
+import com.nextgenchat.config.NextgenChatConfig;
+
+import java.util.function.Predicate;
+
+/**
+ * Every permission node the mod checks. A player's decisions are packed into one {@code long}, one
+ * bit per node at its ordinal, so there must never be more than 64 constants.
+ */
+public enum PermissionNode {
+	GLOBAL_CHAT("nextgenchat.chat.global", settings -> settings.defaultCanUseGlobalChat),
+	LOCAL_CHAT("nextgenchat.chat.local", settings -> settings.defaultCanUseLocalChat),
+	MUTE("nextgenchat.moderate.mute", settings -> settings.defaultCanMutePlayers),
+	UNMUTE("nextgenchat.moderate.unmute", settings -> settings.defaultCanUnmutePlayers),
+	RELOAD_CONFIG("nextgenchat.admin.reload", settings -> settings.defaultCanReloadConfig),
+	VIEW_MUTES("nextgenchat.moderate.view", settings -> settings.defaultCanViewMutes),
+	BYPASS_ANTISPAM("nextgenchat.bypass.antispam", settings -> settings.defaultCanBypassAntiSpam),
+	BYPASS_MUTE("nextgenchat.bypass.mute", settings -> settings.defaultCanBypassMute),
+	COMMANDS("nextgenchat.commands", settings -> settings.defaultCanUseCommands),
+	MODERATION_NOTIFICATIONS("nextgenchat.notifications.moderation", settings -> settings.defaultCanReceiveModerationNotifications),
+	RELOAD_COMMAND("nextgenchat.command.reload", settings -> settings.defaultCanReloadConfig),
+	BROADCAST_COMMAND("nextgenchat.command.broadcast", settings -> settings.defaultCanUseCommands),
+	PERMISSIONS_COMMAND("nextgenchat.command.permissions", settings -> settings.defaultCanUseCommands),
+	STATS_COMMAND("nextgenchat.command.stats", settings -> settings.defaultCanUseCommands),
+	HISTORY_COMMAND("nextgenchat.command.history", settings -> settings.defaultCanViewMutes);
+
+	private static final PermissionNode[] VALUES = values();
+	public static final long ALL = (1L << VALUES.length) - 1;
+
+	private final String node;
+	private final Predicate<NextgenChatConfig.PermissionSettings> defaultValue;
+
+	PermissionNode(String node, Predicate<NextgenChatConfig.PermissionSettings> defaultValue) {
+		this.node = node;
+		this.defaultValue = defaultValue;
+	}
+
+	public String node() {
+		return node;
+	}
+
+	public long bit() {
+		return 1L << ordinal();
+	}
+
+	public boolean isSet(long bits) {
+		return (bits & bit()) != 0;
+	}
+
+	/**
+	 * Packs the config defaults, used when LuckPerms is not installed.
+	 */
+	public static long defaults(NextgenChatConfig.PermissionSettings settings) {
+		long bits = 0L;
+		for (PermissionNode permission : VALUES) {
+			if (permission.defaultValue.test(settings)) {
+				bits |= permission.bit();
+			}
+		}
+		return bits;
+	}
+
+	static PermissionNode[] all() {
+		return VALUES;
+	}
+}
@@ -1,180 +1,301 @@
 package com.nextgenchat.permission;
 
 import com.nextgenchat.NextgenChatMod;
+import com.nextgenchat.config.ConfigSnapshot;
 import com.nextgenchat.config.NextgenChatConfig;
 import com.nextgenchat.luckperms.LuckPermsBridge;
+import com.nextgenchat.stats.ChatStats;
 import com.nextgenchat.util.TextUtils;
+import net.minecraft.network.chat.Component;
 import net.minecraft.server.level.ServerPlayer;
 
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
+/**
+ * Caches every permission decision for a player as one bitmask. Entries that are close to
+ * {@code permissionCacheTimeout} are reloaded on a background thread while callers keep using the
+ * current entry, so chat-time checks for active players do not wait on LuckPerms. A check never
+ * waits on another thread's load either: on a miss the caller loads for itself.
+ */
 public class PermissionService {
 	private final NextgenChatConfig config;
 	private final LuckPermsBridge luckPerms;
 	private final ConcurrentHashMap<UUID, CachedPermissions> cache = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<UUID, CompletableFuture<CachedPermissions>> inflight = new ConcurrentHashMap<>();
+	private final ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "NextgenChat-Permissions");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private volatile Consumer<UUID> recalculationListener = playerId -> {};
 
 	public PermissionService(NextgenChatConfig config, LuckPermsBridge luckPerms) {
 		this.config = config;
 		this.luckPerms = luckPerms;
-		this.luckPerms.setCacheInvalidator(this::clearPlayer);
+		this.luckPerms.setCacheInvalidator(this::onRecalculated);
+	}
+
+	/**
+	 * Called, possibly from a LuckPerms thread, after LuckPerms recalculated a player's permissions.
+	 */
+	public void setRecalculationListener(Consumer<UUID> listener) {
+		this.recalculationListener = listener != null ? listener : playerId -> {};
 	}
 
 	public boolean canUseGlobalChat(ServerPlayer player) {
-		return resolve(player).canUseGlobalChat;
+		return has(player, PermissionNode.GLOBAL_CHAT);
 	}
 
 	public boolean canUseLocalChat(ServerPlayer player) {
-		return resolve(player).canUseLocalChat;
+		return has(player, PermissionNode.LOCAL_CHAT);
 	}
 
 	public boolean canMutePlayers(ServerPlayer player) {
-		return resolve(player).canMutePlayers;
+		return has(player, PermissionNode.MUTE);
 	}
 
 	public boolean canUnmutePlayers(ServerPlayer player) {
-		return resolve(player).canUnmutePlayers;
+		return has(player, PermissionNode.UNMUTE);
 	}
 
 	public boolean canViewMutes(ServerPlayer player) {
-		return resolve(player).canViewMutes;
+		return has(player, PermissionNode.VIEW_MUTES);
 	}
 
 	public boolean canBypassAntiSpam(ServerPlayer player) {
-		return resolve(player).canBypassAntiSpam;
+		return has(player, PermissionNode.BYPASS_ANTISPAM);
 	}
 
 	public boolean canBypassMute(ServerPlayer player) {
-		return resolve(player).canBypassMute;
+		return has(player, PermissionNode.BYPASS_MUTE);
 	}
 
 	public boolean canReceiveModerationNotifications(ServerPlayer player) {
-		return resolve(player).canReceiveModerationNotifications;
+		return has(player, PermissionNode.MODERATION_NOTIFICATIONS);
 	}
 
 	public boolean canUseReloadCommand(ServerPlayer player) {
-		return hasCommandPermission(player, "nextgenchat.command.reload", resolve(player).canReloadConfig);
+		return hasCommandPermission(player, PermissionNode.RELOAD_COMMAND);
 	}
 
 	public boolean canUseBroadcastCommand(ServerPlayer player) {
-		return hasCommandPermission(player, "nextgenchat.command.broadcast", resolve(player).canUseCommands);
+		return hasCommandPermission(player, PermissionNode.BROADCAST_COMMAND);
 	}
 
 	public boolean canUsePermissionsCommand(ServerPlayer player) {
-		return hasCommandPermission(player, "nextgenchat.command.permissions", resolve(player).canUseCommands);
+		return hasCommandPermission(player, PermissionNode.PERMISSIONS_COMMAND);
+	}
+
+	public boolean canUseStatsCommand(ServerPlayer player) {
+		return hasCommandPermission(player, PermissionNode.STATS_COMMAND);
+	}
+
+	public boolean canUseHistoryCommand(ServerPlayer player) {
+		return hasCommandPermission(player, PermissionNode.HISTORY_COMMAND);
+	}
+
+	public boolean has(ServerPlayer player, PermissionNode permission) {
+		return resolve(player).has(permission);
+	}
+
+	/**
+	 * Uncached check of a node that is not a {@link PermissionNode}, such as a chat channel's.
+	 * Without LuckPerms the supplied default applies.
+	 */
+	public boolean hasNode(ServerPlayer player, String node, boolean defaultValue) {
+		if (!config.snapshot().permissions.enabled()) {
+			return true;
+		}
+		if (!luckPerms.isAvailable()) {
+			return defaultValue;
+		}
+		return luckPerms.hasPermission(player, node);
 	}
 
 	public void sendNoPermissionMessage(ServerPlayer player, String permission) {
-		String message = config.permissions.noPermissionMessage
+		player.sendSystemMessage(noPermissionMessage(player, permission));
+	}
+
+	public Component noPermissionMessage(ServerPlayer player, String permission) {
+		String message = config.snapshot().permissions.noPermissionMessage()
 			.replace("{permission}", permission)
 			.replace("{player}", player.getName().getString());
-		player.sendSystemMessage(TextUtils.toComponent(message));
+		return TextUtils.toComponent(message);
+	}
+
+	/**
+	 * Starts loading a joining player's permissions in the background so that their first chat
+	 * message and command suggestions find a cached entry.
+	 */
+	public void warm(ServerPlayer player) {
+		ConfigSnapshot.Permissions settings = config.snapshot().permissions;
+		if (!settings.enabled() || !settings.cacheEnabled()) {
+			return;
+		}
+
+		CachedPermissions cached = cache.get(player.getUUID());
+		if (cached == null || System.currentTimeMillis() - cached.cachedAtMs() >= settings.cacheTimeoutMs()) {
+			refreshInBackground(player);
+		}
 	}
 
+	/**
+	 * Dropping the in-flight load as well makes a load that started before the invalidation discard
+	 * its result instead of caching it.
+	 */
 	public void clearPlayer(UUID playerId) {
+		inflight.remove(playerId);
 		cache.remove(playerId);
 	}
 
+	private void onRecalculated(UUID playerId) {
+		clearPlayer(playerId);
+		recalculationListener.accept(playerId);
+	}
+
 	public void clearAll() {
+		inflight.clear();
 		cache.clear();
 	}
 
-	private boolean hasCommandPermission(ServerPlayer player, String permissionNode, boolean fallbackPermission) {
-		if (!config.permissions.enablePermissionSystem) {
+	public void shutdown() {
+		refresher.shutdownNow();
+	}
+
+	/**
+	 * Without LuckPerms a command node falls back to its config default; with LuckPerms it is
+	 * checked directly. Either way {@code nextgenchat.commands} grants every command.
+	 */
+	private boolean hasCommandPermission(ServerPlayer player, PermissionNode permission) {
+		if (!config.snapshot().permissions.enabled()) {
 			return true;
 		}
 
 		CachedPermissions permissions = resolve(player);
-		if (permissions.canUseCommands) {
-			return true;
-		}
+		return permissions.has(PermissionNode.COMMANDS) || permissions.has(permission);
+	}
 
-		if (luckPerms.isAvailable()) {
-			return luckPerms.hasPermission(player, permissionNode);
+	private CachedPermissions resolve(ServerPlayer player) {
+		long start = ChatStats.start();
+		try {
+			return resolveCached(player);
+		} finally {
+			ChatStats.record(ChatStats.Stage.PERMISSION_RESOLVE, start);
 		}
-
-		return fallbackPermission;
 	}
 
-	private CachedPermissions resolve(ServerPlayer player) {
-		if (!config.permissions.enablePermissionSystem) {
-			return CachedPermissions.allAllowed();
+	private CachedPermissions resolveCached(ServerPlayer player) {
+		ConfigSnapshot.Permissions settings = config.snapshot().permissions;
+		if (!settings.enabled()) {
+			return CachedPermissions.ALL_ALLOWED;
 		}
 
-		if (!config.permissions.enablePermissionCache) {
+		if (!settings.cacheEnabled()) {
 			return loadPermissions(player);
 		}
 
 		long now = System.currentTimeMillis();
 		CachedPermissions cached = cache.get(player.getUUID());
-		if (cached != null && now - cached.cachedAtMs < config.permissions.permissionCacheTimeout * 1000L) {
-			return cached;
+		if (cached != null) {
+			long age = now - cached.cachedAtMs();
+			if (age < settings.cacheTimeoutMs()) {
+				if (age >= settings.refreshAfterMs()) {
+					refreshInBackground(player);
+				}
+				return cached;
+			}
+		}
+
+		return load(player);
+	}
+
+	/**
+	 * Loads on the calling thread. If another load for the same player is already running, which
+	 * may be queued behind others on the refresher, the result is used without caching it and that
+	 * load publishes its own.
+	 */
+	private CachedPermissions load(ServerPlayer player) {
+		UUID playerId = player.getUUID();
+		CompletableFuture<CachedPermissions> created = new CompletableFuture<>();
+		CompletableFuture<CachedPermissions> existing = inflight.putIfAbsent(playerId, created);
+		if (existing != null) {
+			return existing.state() == Future.State.SUCCESS ? existing.resultNow() : loadPermissions(player);
+		}
+
+		return complete(player, created);
+	}
+
+	private void refreshInBackground(ServerPlayer player) {
+		UUID playerId = player.getUUID();
+		CompletableFuture<CachedPermissions> created = new CompletableFuture<>();
+		if (inflight.putIfAbsent(playerId, created) != null) {
+			return;
 		}
 
-		CachedPermissions loaded = loadPermissions(player);
-		cache.put(player.getUUID(), loaded);
-		return loaded;
+		try {
+			refresher.execute(() -> complete(player, created));
+		} catch (RejectedExecutionException e) {
+			inflight.remove(playerId, created);
+			created.cancel(false);
+		}
+	}
+
+	private CachedPermissions complete(ServerPlayer player, CompletableFuture<CachedPermissions> created) {
+		UUID playerId = player.getUUID();
+		try {
+			CachedPermissions loaded = loadPermissions(player);
+			cache.put(playerId, loaded);
+			if (!inflight.remove(playerId, created)) {
+				// Invalidated while loading: the next check loads again.
+				cache.remove(playerId, loaded);
+			}
+			created.complete(loaded);
+			return loaded;
+		} catch (RuntimeException e) {
+			inflight.remove(playerId, created);
+			created.completeExceptionally(e);
+			throw e;
+		}
 	}
 
 	private CachedPermissions loadPermissions(ServerPlayer player) {
-		if (luckPerms.isAvailable()) {
-			CachedPermissions permissions = new CachedPermissions(
-				luckPerms.hasPermission(player, "nextgenchat.chat.global"),
-				luckPerms.hasPermission(player, "nextgenchat.chat.local"),
-				luckPerms.hasPermission(player, "nextgenchat.moderate.mute"),
-				luckPerms.hasPermission(player, "nextgenchat.moderate.unmute"),
-				luckPerms.hasPermission(player, "nextgenchat.admin.reload"),
-				luckPerms.hasPermission(player, "nextgenchat.moderate.view"),
-				luckPerms.hasPermission(player, "nextgenchat.bypass.antispam"),
-				luckPerms.hasPermission(player, "nextgenchat.bypass.mute"),
-				luckPerms.hasPermission(player, "nextgenchat.commands"),
-				luckPerms.hasPermission(player, "nextgenchat.notifications.moderation"),
-				System.currentTimeMillis()
-			);
-
-			if (config.permissions.debugPermissionLogging) {
-				NextgenChatMod.LOGGER.info("[PERM] {} -> global={}, local={}, mute={}, bypassMute={}",
-					player.getName().getString(),
-					permissions.canUseGlobalChat,
-					permissions.canUseLocalChat,
-					permissions.canMutePlayers,
-					permissions.canBypassMute);
+		ConfigSnapshot.Permissions settings = config.snapshot().permissions;
+		if (!luckPerms.isAvailable()) {
+			return new CachedPermissions(settings.defaults(), System.currentTimeMillis());
+		}
+
+		long bits = 0L;
+		for (PermissionNode permission : PermissionNode.all()) {
+			if (luckPerms.hasPermission(player, permission.node())) {
+				bits |= permission.bit();
 			}
+		}
+		CachedPermissions permissions = new CachedPermissions(bits, System.currentTimeMillis());
+
+		if (settings.debugLogging()) {
+			NextgenChatMod.LOGGER.info("[PERM] {} -> global={}, local={}, mute={}, bypassMute={}",
+				player.getName().getString(),
+				permissions.has(PermissionNode.GLOBAL_CHAT),
+				permissions.has(PermissionNode.LOCAL_CHAT),
+				permissions.has(PermissionNode.MUTE),
+				permissions.has(PermissionNode.BYPASS_MUTE));
+		}
+
+		return permissions;
+	}
+
+	public record CachedPermissions(long bits, long cachedAtMs) {
+		static final CachedPermissions ALL_ALLOWED = new CachedPermissions(PermissionNode.ALL, Long.MAX_VALUE);
 
-			return permissions;
-		}
-
-		NextgenChatConfig.PermissionSettings defaults = config.permissions;
-		return new CachedPermissions(
-			defaults.defaultCanUseGlobalChat,
-			defaults.defaultCanUseLocalChat,
-			defaults.defaultCanMutePlayers,
-			defaults.defaultCanUnmutePlayers,
-			defaults.defaultCanReloadConfig,
-			defaults.defaultCanViewMutes,
-			defaults.defaultCanBypassAntiSpam,
-			defaults.defaultCanBypassMute,
-			defaults.defaultCanUseCommands,
-			defaults.defaultCanReceiveModerationNotifications,
-			System.currentTimeMillis()
-		);
-	}
-
-	public record CachedPermissions(
-		boolean canUseGlobalChat,
-		boolean canUseLocalChat,
-		boolean canMutePlayers,
-		boolean canUnmutePlayers,
-		boolean canReloadConfig,
-		boolean canViewMutes,
-		boolean canBypassAntiSpam,
-		boolean canBypassMute,
-		boolean canUseCommands,
-		boolean canReceiveModerationNotifications,
-		long cachedAtMs
-	) {
-		static CachedPermissions allAllowed() {
-			return new CachedPermissions(true, true, true, true, true, true, true, true, true, true, System.currentTimeMillis());
+		public boolean has(PermissionNode permission) {
+			return permission.isSet(bits);
 		}
 	}
 }
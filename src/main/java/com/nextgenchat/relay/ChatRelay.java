@@ -0,0 +1,208 @@
+package com.nextgenchat.relay;
+
+import com.nextgenchat.NextgenChatMod;
+import com.nextgenchat.config.NextgenChatConfig;
+import com.nextgenchat.moderation.ModerationService;
+import com.nextgenchat.util.ChatFanout;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Relays global chat, broadcasts and mutes between sibling servers on the same host through a
+ * {@link RelayHub}. Messages published during a tick are sent as one frame at the end of it, and
+ * frames received since the previous tick are applied then. Every message is numbered per origin,
+ * so a message seen twice (after a reconnect, for instance) is applied once. Server thread only.
+ */
+public final class ChatRelay {
+	private static final int MAX_BATCH_MESSAGES = 128;
+
+	private final NextgenChatConfig config;
+	private final ModerationService moderation;
+	private final long origin = ThreadLocalRandom.current().nextLong();
+	private final List<RelayMessage> pending = new ArrayList<>();
+	private final Map<Long, Long> lastSequences = new HashMap<>();
+	private long nextSequence = 1;
+	private RelayHub hub;
+	private RelayClient client;
+	private boolean relayChat;
+	private boolean relayBroadcasts;
+	private boolean relayMutes;
+
+	public ChatRelay(NextgenChatConfig config, ModerationService moderation) {
+		this.config = config;
+		this.moderation = moderation;
+	}
+
+	/**
+	 * (Re)starts the relay from the current config; does nothing more than stop it when disabled.
+	 */
+	public void start() {
+		stop();
+		NextgenChatConfig.RelaySettings settings = config.relay;
+		if (!settings.enableRelay) {
+			return;
+		}
+
+		SocketAddress address;
+		try {
+			address = parseAddress(settings.hubAddress);
+		} catch (IllegalArgumentException | UnknownHostException e) {
+			NextgenChatMod.LOGGER.error("Invalid NextgenChat relay address '{}': {}", settings.hubAddress, e.getMessage());
+			return;
+		}
+
+		if (settings.hostHub) {
+			hub = new RelayHub(address, settings.queueCapacity);
+			try {
+				hub.start();
+			} catch (IOException e) {
+				NextgenChatMod.LOGGER.error("Failed to start NextgenChat relay hub on {}", address, e);
+				hub = null;
+			}
+		}
+
+		relayChat = settings.relayGlobalChat;
+		relayBroadcasts = settings.relayBroadcasts;
+		relayMutes = settings.relayMutes;
+		client = new RelayClient(address, settings.queueCapacity, settings.reconnectDelayMs, settings.maxFrameAgeMs);
+		client.start();
+	}
+
+	public void stop() {
+		if (client != null) {
+			client.stop();
+			client = null;
+		}
+		if (hub != null) {
+			hub.stop();
+			hub = null;
+		}
+		pending.clear();
+	}
+
+	public void publishChat(Component message) {
+		if (client != null && relayChat) {
+			pending.add(new RelayMessage.Chat(message));
+		}
+	}
+
+	public void publishBroadcast(Component message) {
+		if (client != null && relayBroadcasts) {
+			pending.add(new RelayMessage.Broadcast(message));
+		}
+	}
+
+	public void publishMute(ModerationService.MuteData muteData) {
+		if (client != null && relayMutes) {
+			UUID moderatorId = muteData.moderatorUUID != null ? muteData.moderatorUUID : ModerationService.CONSOLE_ACTOR_ID;
+			pending.add(new RelayMessage.Mute(muteData.playerUUID, muteData.playerName, moderatorId,
+				muteData.moderatorName, muteData.muteTime, muteData.duration, muteData.reason));
+		}
+	}
+
+	public void publishUnmute(UUID playerId) {
+		if (client != null && relayMutes) {
+			pending.add(new RelayMessage.Unmute(playerId));
+		}
+	}
+
+	/**
+	 * Sends what was published this tick and applies what arrived since the last one.
+	 */
+	public void tick(MinecraftServer server) {
+		if (client == null) {
+			return;
+		}
+
+		for (int from = 0; from < pending.size(); from += MAX_BATCH_MESSAGES) {
+			List<RelayMessage> batch = pending.subList(from, Math.min(pending.size(), from + MAX_BATCH_MESSAGES));
+			client.send(RelayFrame.encode(origin, nextSequence, batch));
+			nextSequence += batch.size();
+		}
+		pending.clear();
+
+		RelayFrame.Batch batch;
+		while ((batch = client.poll()) != null) {
+			apply(server, batch);
+		}
+	}
+
+	private void apply(MinecraftServer server, RelayFrame.Batch batch) {
+		if (batch.origin() == origin) {
+			return;
+		}
+
+		long last = lastSequences.getOrDefault(batch.origin(), 0L);
+		List<RelayMessage> messages = batch.messages();
+		for (int i = 0; i < messages.size(); i++) {
+			long sequence = batch.firstSequence() + i;
+			if (sequence > last) {
+				apply(server, messages.get(i));
+				last = sequence;
+			}
+		}
+		lastSequences.put(batch.origin(), last);
+	}
+
+	private void apply(MinecraftServer server, RelayMessage message) {
+		switch (message) {
+			case RelayMessage.Chat chat -> {
+				if (relayChat) {
+					ChatFanout.sendToAll(server, chat.message());
+				}
+			}
+			case RelayMessage.Broadcast broadcast -> {
+				if (relayBroadcasts) {
+					ChatFanout.sendToAll(server, broadcast.message());
+				}
+			}
+			case RelayMessage.Mute mute -> {
+				if (relayMutes) {
+					moderation.applyRemoteMute(new ModerationService.MuteData(mute.playerId(), mute.playerName(),
+						mute.moderatorId(), mute.moderatorName(), mute.muteTime(), mute.duration(), mute.reason()));
+				}
+			}
+			case RelayMessage.Unmute unmute -> {
+				if (relayMutes) {
+					moderation.applyRemoteUnmute(unmute.playerId());
+				}
+			}
+		}
+	}
+
+	/**
+	 * {@code unix:<path>} for a Unix-domain socket, otherwise {@code host:port}, where the host must
+	 * be a loopback address: the relay has no authentication and must not be reachable from outside.
+	 */
+	static SocketAddress parseAddress(String value) throws UnknownHostException {
+		if (value == null || value.isBlank()) {
+			throw new IllegalArgumentException("empty address");
+		}
+		if (value.startsWith("unix:")) {
+			return UnixDomainSocketAddress.of(value.substring("unix:".length()));
+		}
+
+		int separator = value.lastIndexOf(':');
+		if (separator <= 0) {
+			throw new IllegalArgumentException("expected host:port or unix:<path>");
+		}
+		InetAddress host = InetAddress.getByName(value.substring(0, separator));
+		if (!host.isLoopbackAddress()) {
+			throw new IllegalArgumentException("host must be a loopback address");
+		}
+		return new InetSocketAddress(host, Integer.parseInt(value.substring(separator + 1)));
+	}
+}
@@ -0,0 +1,178 @@
+package com.nextgenchat.relay;
+
+import com.nextgenchat.NextgenChatMod;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A server's connection to the relay hub. Outgoing frames go through a bounded queue to a writer
+ * thread; when the hub is slow or unreachable and the queue is full, new frames are dropped and
+ * counted instead of blocking the server thread. Incoming frames are decoded on the reader thread
+ * and queued for the server thread. The connection is re-established after a delay when lost.
+ * <p>
+ * A queued frame expires {@code maxFrameAgeMs} after it was sent: the writer discards it instead
+ * of delivering chat from before an outage once the hub is back, and a full queue makes room by
+ * evicting expired frames first.
+ */
+public final class RelayClient {
+	private final SocketAddress address;
+	private final long reconnectDelayMs;
+	private final long maxFrameAgeNanos;
+	private final BlockingQueue<Outgoing> outbound;
+	private final Queue<RelayFrame.Batch> inbound = new ConcurrentLinkedQueue<>();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong expired = new AtomicLong();
+	private volatile boolean running;
+	private volatile SocketChannel socket;
+	private Thread connector;
+
+	public RelayClient(SocketAddress address, int queueCapacity, long reconnectDelayMs, long maxFrameAgeMs) {
+		this.address = address;
+		this.reconnectDelayMs = Math.max(100, reconnectDelayMs);
+		this.maxFrameAgeNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, maxFrameAgeMs));
+		this.outbound = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+	}
+
+	public void start() {
+		running = true;
+		connector = new Thread(this::connectLoop, "NextgenChat-Relay");
+		connector.setDaemon(true);
+		connector.start();
+	}
+
+	public void stop() {
+		running = false;
+		closeSocket();
+		if (connector != null) {
+			connector.interrupt();
+			connector = null;
+		}
+	}
+
+	public void send(byte[] frame) {
+		long now = System.nanoTime();
+		Outgoing outgoing = new Outgoing(frame, now);
+		while (!outbound.offer(outgoing)) {
+			Outgoing oldest = outbound.peek();
+			if (oldest == null || !oldest.isExpired(now, maxFrameAgeNanos)) {
+				if (dropped.getAndIncrement() % 100 == 0) {
+					NextgenChatMod.LOGGER.warn("NextgenChat relay is not keeping up, {} frames dropped so far", dropped.get());
+				}
+				return;
+			}
+			if (outbound.remove(oldest)) {
+				expired.incrementAndGet();
+			}
+		}
+	}
+
+	public RelayFrame.Batch poll() {
+		return inbound.poll();
+	}
+
+	private void connectLoop() {
+		boolean warned = false;
+		while (running) {
+			try {
+				socket = SocketChannel.open(address);
+				NextgenChatMod.LOGGER.info("NextgenChat relay connected to {}", address);
+				warned = false;
+				session(socket);
+			} catch (IOException e) {
+				if (running && !warned) {
+					NextgenChatMod.LOGGER.warn("NextgenChat relay lost connection to {}: {}", address, e.getMessage());
+					warned = true;
+				}
+			} finally {
+				closeSocket();
+			}
+
+			try {
+				Thread.sleep(reconnectDelayMs);
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Reads until the connection drops, with a writer thread running alongside for its lifetime.
+	 */
+	private void session(SocketChannel channel) throws IOException {
+		Thread writer = new Thread(() -> writeLoop(channel), "NextgenChat-Relay-Writer");
+		writer.setDaemon(true);
+		writer.start();
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+			while (running) {
+				inbound.add(RelayFrame.decode(RelayFrame.read(in)));
+			}
+		} finally {
+			writer.interrupt();
+		}
+	}
+
+	private void writeLoop(SocketChannel channel) {
+		try {
+			OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+			long reportedExpired = expired.get();
+			while (channel.isOpen()) {
+				Outgoing outgoing = outbound.take();
+				if (outgoing.isExpired(System.nanoTime(), maxFrameAgeNanos)) {
+					expired.incrementAndGet();
+					continue;
+				}
+
+				out.write(outgoing.frame);
+				if (outbound.isEmpty()) {
+					out.flush();
+					long total = expired.get();
+					if (total != reportedExpired) {
+						NextgenChatMod.LOGGER.info("NextgenChat relay discarded {} frames older than {} ms",
+							total - reportedExpired, TimeUnit.NANOSECONDS.toMillis(maxFrameAgeNanos));
+						reportedExpired = total;
+					}
+				}
+			}
+		} catch (IOException | InterruptedException e) {
+			// Connection closed; the connect loop reconnects.
+		} finally {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// Already gone.
+			}
+		}
+	}
+
+	private void closeSocket() {
+		SocketChannel current = socket;
+		socket = null;
+		if (current != null) {
+			try {
+				current.close();
+			} catch (IOException e) {
+				// Already gone.
+			}
+		}
+	}
+
+	private record Outgoing(byte[] frame, long queuedAtNanos) {
+		private boolean isExpired(long now, long maxAgeNanos) {
+			return now - queuedAtNanos >= maxAgeNanos;
+		}
+	}
+}
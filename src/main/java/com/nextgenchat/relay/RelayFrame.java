@@ -0,0 +1,213 @@
+package com.nextgenchat.relay;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.mojang.serialization.JsonOps;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.ComponentSerialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Binary framing of the relay. One frame carries a batch of messages from a single origin:
+ *
+ * <pre>
+ * int     length of the rest of the frame
+ * long    origin, a random id the sending server picks at startup
+ * varlong sequence number of the first message; the others follow consecutively
+ * varint  message count
+ * then per message a type byte and its fields
+ * </pre>
+ *
+ * Strings are a varint byte length followed by UTF-8, components are sent as their JSON form, and
+ * UUIDs as two longs. The hub forwards frames without decoding them.
+ */
+public final class RelayFrame {
+	public static final int MAX_FRAME_BYTES = 4 << 20;
+
+	private static final byte CHAT = 1;
+	private static final byte BROADCAST = 2;
+	private static final byte MUTE = 3;
+	private static final byte UNMUTE = 4;
+
+	private RelayFrame() {
+	}
+
+	public record Batch(long origin, long firstSequence, List<RelayMessage> messages) {
+	}
+
+	public static byte[] encode(long origin, long firstSequence, List<RelayMessage> messages) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(0);
+			out.writeLong(origin);
+			writeVarLong(out, firstSequence);
+			writeVarLong(out, messages.size());
+			for (RelayMessage message : messages) {
+				writeMessage(out, message);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		byte[] frame = bytes.toByteArray();
+		ByteBuffer.wrap(frame).putInt(0, frame.length - Integer.BYTES);
+		return frame;
+	}
+
+	/**
+	 * Reads one complete frame, length prefix included, so that it can be forwarded as is.
+	 */
+	public static byte[] read(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0 || length > MAX_FRAME_BYTES) {
+			throw new IOException("Invalid relay frame length " + length);
+		}
+
+		byte[] frame = new byte[Integer.BYTES + length];
+		ByteBuffer.wrap(frame).putInt(0, length);
+		in.readFully(frame, Integer.BYTES, length);
+		return frame;
+	}
+
+	public static Batch decode(byte[] frame) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame, Integer.BYTES, frame.length - Integer.BYTES));
+		long origin = in.readLong();
+		long firstSequence = readVarLong(in);
+		int count = (int) Math.min(readVarLong(in), frame.length);
+		List<RelayMessage> messages = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			messages.add(readMessage(in));
+		}
+		return new Batch(origin, firstSequence, messages);
+	}
+
+	private static void writeMessage(DataOutput out, RelayMessage message) throws IOException {
+		switch (message) {
+			case RelayMessage.Chat chat -> {
+				out.writeByte(CHAT);
+				writeComponent(out, chat.message());
+			}
+			case RelayMessage.Broadcast broadcast -> {
+				out.writeByte(BROADCAST);
+				writeComponent(out, broadcast.message());
+			}
+			case RelayMessage.Mute mute -> {
+				out.writeByte(MUTE);
+				writeUuid(out, mute.playerId());
+				writeString(out, mute.playerName());
+				writeUuid(out, mute.moderatorId());
+				writeString(out, mute.moderatorName());
+				out.writeLong(mute.muteTime());
+				writeVarLong(out, mute.duration());
+				writeString(out, mute.reason());
+			}
+			case RelayMessage.Unmute unmute -> {
+				out.writeByte(UNMUTE);
+				writeUuid(out, unmute.playerId());
+			}
+		}
+	}
+
+	private static RelayMessage readMessage(DataInput in) throws IOException {
+		byte type = in.readByte();
+		return switch (type) {
+			case CHAT -> new RelayMessage.Chat(readComponent(in));
+			case BROADCAST -> new RelayMessage.Broadcast(readComponent(in));
+			case MUTE -> new RelayMessage.Mute(
+				readUuid(in),
+				readString(in),
+				readUuid(in),
+				readString(in),
+				in.readLong(),
+				readVarLong(in),
+				readString(in)
+			);
+			case UNMUTE -> new RelayMessage.Unmute(readUuid(in));
+			default -> throw new IOException("Unknown relay message type " + type);
+		};
+	}
+
+	/**
+	 * Components that cannot be encoded without registries (item hovers and the like) fall back to
+	 * their plain text, which is itself valid component JSON.
+	 */
+	private static void writeComponent(DataOutput out, Component component) throws IOException {
+		String json = ComponentSerialization.CODEC.encodeStart(JsonOps.INSTANCE, component).result()
+			.map(JsonElement::toString)
+			.orElseGet(() -> new JsonPrimitive(component.getString()).toString());
+		writeString(out, json);
+	}
+
+	private static Component readComponent(DataInput in) throws IOException {
+		String json = readString(in);
+		try {
+			JsonElement element = JsonParser.parseString(json);
+			return ComponentSerialization.CODEC.parse(JsonOps.INSTANCE, element).result()
+				.orElseThrow(() -> new IOException("Malformed relayed component"));
+		} catch (JsonParseException e) {
+			throw new IOException("Malformed relayed component", e);
+		}
+	}
+
+	private static void writeString(DataOutput out, String value) throws IOException {
+		byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+		writeVarLong(out, bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		long length = readVarLong(in);
+		if (length > MAX_FRAME_BYTES) {
+			throw new IOException("Invalid relay string length " + length);
+		}
+
+		byte[] bytes = new byte[(int) length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeUuid(DataOutput out, UUID value) throws IOException {
+		out.writeLong(value.getMostSignificantBits());
+		out.writeLong(value.getLeastSignificantBits());
+	}
+
+	private static UUID readUuid(DataInput in) throws IOException {
+		return new UUID(in.readLong(), in.readLong());
+	}
+
+	private static void writeVarLong(DataOutput out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static long readVarLong(DataInput in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < Long.SIZE; shift += 7) {
+			byte next = in.readByte();
+			value |= (long) (next & 0x7F) << shift;
+			if ((next & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Relay varint too long");
+	}
+}
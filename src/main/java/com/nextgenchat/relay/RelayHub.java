@@ -0,0 +1,171 @@
+package com.nextgenchat.relay;
+
+import com.nextgenchat.NextgenChatMod;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The relay hub, hosted by one of the sibling servers. It forwards every frame a peer sends to all
+ * other peers without decoding it. Each peer has a bounded outbound queue drained by its own
+ * writer; a peer that lets its queue fill up is disconnected rather than allowed to stall the hub
+ * or grow its memory, and reconnects on its own.
+ */
+public final class RelayHub {
+	private final SocketAddress address;
+	private final int peerQueueCapacity;
+	private final Set<Peer> peers = ConcurrentHashMap.newKeySet();
+	private ServerSocketChannel serverChannel;
+
+	public RelayHub(SocketAddress address, int peerQueueCapacity) {
+		this.address = address;
+		this.peerQueueCapacity = Math.max(1, peerQueueCapacity);
+	}
+
+	public void start() throws IOException {
+		if (address instanceof UnixDomainSocketAddress unixAddress) {
+			Files.deleteIfExists(unixAddress.getPath());
+			serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+		} else {
+			serverChannel = ServerSocketChannel.open();
+		}
+		serverChannel.bind(address);
+
+		Thread acceptor = new Thread(this::acceptLoop, "NextgenChat-RelayHub");
+		acceptor.setDaemon(true);
+		acceptor.start();
+		NextgenChatMod.LOGGER.info("NextgenChat relay hub listening on {}", address);
+	}
+
+	public void stop() {
+		if (serverChannel == null) {
+			return;
+		}
+
+		try {
+			serverChannel.close();
+			if (address instanceof UnixDomainSocketAddress unixAddress) {
+				Files.deleteIfExists(unixAddress.getPath());
+			}
+		} catch (IOException e) {
+			NextgenChatMod.LOGGER.warn("Failed to close NextgenChat relay hub", e);
+		}
+		serverChannel = null;
+		for (Peer peer : peers) {
+			peer.close();
+		}
+	}
+
+	private void acceptLoop() {
+		ServerSocketChannel channel = serverChannel;
+		while (channel.isOpen()) {
+			try {
+				Peer peer = new Peer(channel.accept());
+				peers.add(peer);
+				peer.start();
+			} catch (IOException e) {
+				if (channel.isOpen()) {
+					NextgenChatMod.LOGGER.warn("NextgenChat relay hub failed to accept a peer", e);
+				}
+			}
+		}
+	}
+
+	private void forward(Peer source, byte[] frame) {
+		for (Peer peer : peers) {
+			if (peer != source) {
+				peer.offer(frame);
+			}
+		}
+	}
+
+	private final class Peer {
+		private final SocketChannel socket;
+		private final BlockingQueue<byte[]> outbound = new ArrayBlockingQueue<>(peerQueueCapacity);
+		private final AtomicBoolean closed = new AtomicBoolean();
+		private final Thread reader = new Thread(this::readLoop, "NextgenChat-RelayHub-Reader");
+		private final Thread writer = new Thread(this::writeLoop, "NextgenChat-RelayHub-Writer");
+
+		private Peer(SocketChannel socket) {
+			this.socket = socket;
+			reader.setDaemon(true);
+			writer.setDaemon(true);
+		}
+
+		private void start() {
+			reader.start();
+			writer.start();
+		}
+
+		private void offer(byte[] frame) {
+			if (!outbound.offer(frame)) {
+				NextgenChatMod.LOGGER.warn("NextgenChat relay peer {} is not keeping up, disconnecting it", remoteName());
+				close();
+			}
+		}
+
+		private void readLoop() {
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(socket)))) {
+				while (!closed.get()) {
+					forward(this, RelayFrame.read(in));
+				}
+			} catch (IOException e) {
+				// Disconnected.
+			} finally {
+				close();
+			}
+		}
+
+		private void writeLoop() {
+			try (OutputStream out = new BufferedOutputStream(Channels.newOutputStream(socket))) {
+				while (!closed.get()) {
+					out.write(outbound.take());
+					if (outbound.isEmpty()) {
+						out.flush();
+					}
+				}
+			} catch (IOException | InterruptedException e) {
+				// Disconnected or closed.
+			} finally {
+				close();
+			}
+		}
+
+		private void close() {
+			if (!closed.compareAndSet(false, true)) {
+				return;
+			}
+
+			peers.remove(this);
+			writer.interrupt();
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Already gone.
+			}
+		}
+
+		private String remoteName() {
+			try {
+				return String.valueOf(socket.getRemoteAddress());
+			} catch (IOException e) {
+				return "?";
+			}
+		}
+	}
+}
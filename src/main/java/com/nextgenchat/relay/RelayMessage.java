@@ -0,0 +1,26 @@
+package com.nextgenchat.relay;
+
+import net.minecraft.network.chat.Component;
+
+import java.util.UUID;
+
+/**
+ * One event relayed between sibling servers. The id of a message is its origin server plus its
+ * sequence number, both carried by the {@link RelayFrame} around it.
+ */
+public sealed interface RelayMessage {
+	/**
+	 * A global chat line, already formatted by the origin server.
+	 */
+	record Chat(Component message) implements RelayMessage {
+	}
+
+	record Broadcast(Component message) implements RelayMessage {
+	}
+
+	record Mute(UUID playerId, String playerName, UUID moderatorId, String moderatorName, long muteTime, long duration, String reason) implements RelayMessage {
+	}
+
+	record Unmute(UUID playerId) implements RelayMessage {
+	}
+}
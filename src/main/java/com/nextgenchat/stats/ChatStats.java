@@ -0,0 +1,110 @@
+package com.nextgenchat.stats;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide chat timings and counters, always on. Like the logger, it is static so that every
+ * service can record without being handed an instance. A recording is two {@code nanoTime} reads
+ * and a few uncontended atomic adds.
+ */
+public final class ChatStats {
+	public enum Stage {
+		MUTE_CHECK("Проверка мута"),
+		PERMISSION_RESOLVE("Права"),
+		FILTER("Фильтр слов"),
+		ANTI_SPAM("Анти-спам"),
+		FORMAT("Форматирование"),
+		FANOUT("Рассылка");
+
+		private final String label;
+
+		Stage(String label) {
+			this.label = label;
+		}
+
+		public String label() {
+			return label;
+		}
+	}
+
+	public enum Counter {
+		MESSAGES,
+		REJECTED,
+		RECIPIENTS,
+		BROADCASTS,
+		LUCKPERMS_CALLS
+	}
+
+	private static final Stage[] STAGES = Stage.values();
+	private static final Counter[] COUNTERS = Counter.values();
+	private static final LatencyHistogram[] HISTOGRAMS = new LatencyHistogram[STAGES.length];
+	private static final LongAdder[] COUNTS = new LongAdder[COUNTERS.length];
+	private static volatile long sinceNanos = System.nanoTime();
+
+	static {
+		for (int i = 0; i < HISTOGRAMS.length; i++) {
+			HISTOGRAMS[i] = new LatencyHistogram();
+		}
+		for (int i = 0; i < COUNTS.length; i++) {
+			COUNTS[i] = new LongAdder();
+		}
+	}
+
+	private ChatStats() {
+	}
+
+	/**
+	 * Start timestamp for {@link #record}.
+	 */
+	public static long start() {
+		return System.nanoTime();
+	}
+
+	public static void record(Stage stage, long startNanos) {
+		HISTOGRAMS[stage.ordinal()].record(System.nanoTime() - startNanos);
+	}
+
+	public static void increment(Counter counter) {
+		COUNTS[counter.ordinal()].increment();
+	}
+
+	public static void add(Counter counter, long amount) {
+		COUNTS[counter.ordinal()].add(amount);
+	}
+
+	public static Snapshot snapshot() {
+		Map<Stage, LatencyHistogram.Snapshot> stages = new EnumMap<>(Stage.class);
+		for (Stage stage : STAGES) {
+			stages.put(stage, HISTOGRAMS[stage.ordinal()].snapshot());
+		}
+		Map<Counter, Long> counters = new EnumMap<>(Counter.class);
+		for (Counter counter : COUNTERS) {
+			counters.put(counter, COUNTS[counter.ordinal()].sum());
+		}
+		long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sinceNanos);
+		return new Snapshot(stages, counters, Math.max(1L, elapsedMs));
+	}
+
+	public static void reset() {
+		for (LatencyHistogram histogram : HISTOGRAMS) {
+			histogram.reset();
+		}
+		for (LongAdder count : COUNTS) {
+			count.reset();
+		}
+		sinceNanos = System.nanoTime();
+	}
+
+	public record Snapshot(Map<Stage, LatencyHistogram.Snapshot> stages, Map<Counter, Long> counters, long elapsedMs) {
+		public long count(Counter counter) {
+			return counters.getOrDefault(counter, 0L);
+		}
+
+		public double perSecond(Counter counter) {
+			return count(counter) * 1000.0 / elapsedMs;
+		}
+	}
+}
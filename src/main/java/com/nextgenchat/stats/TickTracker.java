@@ -0,0 +1,140 @@
+package com.nextgenchat.stats;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rolling record of the last five minutes of server ticks: when each tick ended and how long it
+ * took. Recording is two array stores per tick; TPS and MSPT over any window up to five minutes are
+ * computed on demand by walking back from the newest tick. Used from the server thread only.
+ */
+public final class TickTracker {
+	public static final long WINDOW_5S = TimeUnit.SECONDS.toNanos(5);
+	public static final long WINDOW_1M = TimeUnit.MINUTES.toNanos(1);
+	public static final long WINDOW_5M = TimeUnit.MINUTES.toNanos(5);
+
+	private int ticksPerSecond;
+	private int capacity;
+	private long[] endNanos;
+	private long[] durationNanos;
+	private int head;
+	private int size;
+	private long firstEndNanos;
+	private long tickStartNanos;
+
+	public TickTracker(int ticksPerSecond) {
+		this.ticksPerSecond = Math.max(1, ticksPerSecond);
+		this.capacity = (int) TimeUnit.NANOSECONDS.toSeconds(WINDOW_5M) * this.ticksPerSecond;
+		this.endNanos = new long[capacity];
+		this.durationNanos = new long[capacity];
+	}
+
+	/**
+	 * Applies a new nominal tick rate: the TPS cap changes and the ring is resized to five minutes
+	 * at that rate, keeping the newest ticks recorded so far.
+	 */
+	public void setTicksPerSecond(int ticksPerSecond) {
+		int rate = Math.max(1, ticksPerSecond);
+		if (rate == this.ticksPerSecond) {
+			return;
+		}
+
+		int newCapacity = (int) TimeUnit.NANOSECONDS.toSeconds(WINDOW_5M) * rate;
+		int kept = Math.min(size, newCapacity);
+		long[] newEnds = new long[newCapacity];
+		long[] newDurations = new long[newCapacity];
+		for (int i = 0; i < kept; i++) {
+			int from = indexBack(kept - 1 - i);
+			newEnds[i] = endNanos[from];
+			newDurations[i] = durationNanos[from];
+		}
+
+		this.ticksPerSecond = rate;
+		this.capacity = newCapacity;
+		this.endNanos = newEnds;
+		this.durationNanos = newDurations;
+		this.head = kept % newCapacity;
+		this.size = kept;
+	}
+
+	public void onTickStart() {
+		tickStartNanos = System.nanoTime();
+	}
+
+	public void onTickEnd() {
+		long now = System.nanoTime();
+		if (tickStartNanos == 0L) {
+			return;
+		}
+
+		if (size == 0) {
+			firstEndNanos = now;
+		}
+		endNanos[head] = now;
+		durationNanos[head] = now - tickStartNanos;
+		head = (head + 1) % capacity;
+		if (size < capacity) {
+			size++;
+		}
+	}
+
+	/**
+	 * Ticks completed per second over the window, capped at the nominal rate. Right after startup
+	 * the window is shortened to the time since the first tick.
+	 */
+	public double tps(long windowNanos) {
+		if (size == 0) {
+			return ticksPerSecond;
+		}
+
+		long now = System.nanoTime();
+		long span = Math.min(windowNanos, now - firstEndNanos);
+		if (span <= 0) {
+			return ticksPerSecond;
+		}
+
+		int ticks = countSince(now - span);
+		double measured = ticks * (double) TimeUnit.SECONDS.toNanos(1) / span;
+		return Math.min(ticksPerSecond, measured);
+	}
+
+	public Mspt mspt(long windowNanos) {
+		int ticks = countSince(System.nanoTime() - windowNanos);
+		if (ticks == 0) {
+			return new Mspt(0.0, 0.0, 0.0);
+		}
+
+		long[] durations = new long[ticks];
+		long total = 0;
+		for (int i = 0; i < ticks; i++) {
+			durations[i] = durationNanos[indexBack(i)];
+			total += durations[i];
+		}
+		Arrays.sort(durations);
+
+		int p95 = Math.min(ticks - 1, (int) Math.ceil(ticks * 0.95) - 1);
+		return new Mspt(toMillis(total / (double) ticks), toMillis(durations[p95]), toMillis(durations[ticks - 1]));
+	}
+
+	private int countSince(long sinceNanos) {
+		int ticks = 0;
+		while (ticks < size && endNanos[indexBack(ticks)] - sinceNanos > 0) {
+			ticks++;
+		}
+		return ticks;
+	}
+
+	/**
+	 * Ring index of the tick {@code back} ticks before the newest one.
+	 */
+	private int indexBack(int back) {
+		return Math.floorMod(head - 1 - back, capacity);
+	}
+
+	private static double toMillis(double nanos) {
+		return nanos / 1_000_000.0;
+	}
+
+	public record Mspt(double mean, double p95, double max) {
+	}
+}
@@ -0,0 +1,44 @@
+package com.nextgenchat.util;
+
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.protocol.game.ClientboundSystemChatPacket;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.player.ChatVisiblity;
+
+/**
+ * Sends one prebuilt system-chat packet to many recipients instead of letting
+ * {@code sendSystemMessage} allocate a fresh packet for every player.
+ */
+public final class ChatFanout {
+	private ChatFanout() {
+	}
+
+	public static ClientboundSystemChatPacket packet(Component message) {
+		return new ClientboundSystemChatPacket(message, false);
+	}
+
+	/**
+	 * Mirrors {@code ServerPlayer.sendSystemMessage(message, false)}: players with hidden chat do
+	 * not receive non-overlay system messages. Returns whether the packet was sent.
+	 */
+	public static boolean send(ServerPlayer player, ClientboundSystemChatPacket packet) {
+		if (player.connection == null || player.getChatVisibility() == ChatVisiblity.HIDDEN) {
+			return false;
+		}
+		player.connection.send(packet);
+		return true;
+	}
+
+	/**
+	 * Same as {@code PlayerList.broadcastSystemMessage(message, false)}, including the console
+	 * echo, but with a single shared packet.
+	 */
+	public static void sendToAll(MinecraftServer server, Component message) {
+		server.sendSystemMessage(message);
+		ClientboundSystemChatPacket packet = packet(message);
+		for (ServerPlayer player : server.getPlayerList().getPlayers()) {
+			send(player, packet);
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package com.nextgenchat.util;
+
+import net.minecraft.ChatFormatting;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.MutableComponent;
+import net.minecraft.network.chat.Style;
+import net.minecraft.network.chat.TextColor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds a styled {@link Component} from legacy formatting codes in a single pass: {@code &0}-{@code &f},
+ * {@code &k}-{@code &o}, {@code &r}, {@code &#RRGGBB} and {@code &x&R&R&G&G&B&B}, with {@code §} accepted
+ * in place of {@code &}. As on the vanilla client, a color resets the decorations. Unknown codes stay
+ * in the text. Text added with {@link #appendPlain} is never scanned but keeps the current style, so
+ * player input can be inserted without its {@code &} turning into formatting. Not thread-safe.
+ */
+public final class LegacyComponentBuilder {
+	private static final int HEX_LENGTH = 8;
+	private static final int SPIGOT_HEX_LENGTH = 14;
+
+	private final List<Component> parts = new ArrayList<>();
+	private final StringBuilder run = new StringBuilder();
+	private Style style = Style.EMPTY;
+
+	public LegacyComponentBuilder append(CharSequence text) {
+		int length = text.length();
+		int index = 0;
+		while (index < length) {
+			char current = text.charAt(index);
+			if (isCodePrefix(current) && index + 1 < length) {
+				int consumed = applyCode(text, index);
+				if (consumed > 0) {
+					index += consumed;
+					continue;
+				}
+			}
+			run.append(current);
+			index++;
+		}
+		return this;
+	}
+
+	public LegacyComponentBuilder appendPlain(CharSequence text) {
+		run.append(text);
+		return this;
+	}
+
+	public Component build() {
+		flush();
+		if (parts.size() == 1) {
+			return parts.get(0);
+		}
+
+		MutableComponent root = Component.empty();
+		for (Component part : parts) {
+			root.append(part);
+		}
+		return root;
+	}
+
+	/**
+	 * Applies the code starting at {@code index} and returns how many characters it took, or 0 if
+	 * the prefix does not start a valid code.
+	 */
+	private int applyCode(CharSequence text, int index) {
+		char code = Character.toLowerCase(text.charAt(index + 1));
+		if (code == '#') {
+			int rgb = parseHex(text, index + 2, 1);
+			if (rgb < 0) {
+				return 0;
+			}
+			setStyle(Style.EMPTY.withColor(TextColor.fromRgb(rgb)));
+			return HEX_LENGTH;
+		}
+		if (code == 'x') {
+			int rgb = parseHex(text, index + 2, 2);
+			if (rgb < 0) {
+				return 0;
+			}
+			setStyle(Style.EMPTY.withColor(TextColor.fromRgb(rgb)));
+			return SPIGOT_HEX_LENGTH;
+		}
+
+		ChatFormatting formatting = ChatFormatting.getByCode(code);
+		if (formatting == null) {
+			return 0;
+		}
+		setStyle(formatting == ChatFormatting.RESET ? Style.EMPTY : style.applyLegacyFormat(formatting));
+		return 2;
+	}
+
+	/**
+	 * Reads six hex digits starting at {@code from}, {@code stride} characters apart. With a stride of
+	 * 2 every digit must be preceded by a code prefix, as in {@code &x&R&R&G&G&B&B}.
+	 */
+	private static int parseHex(CharSequence text, int from, int stride) {
+		if (from + 6 * stride > text.length()) {
+			return -1;
+		}
+
+		int rgb = 0;
+		for (int digit = 0; digit < 6; digit++) {
+			int position = from + digit * stride;
+			if (stride == 2 && !isCodePrefix(text.charAt(position))) {
+				return -1;
+			}
+			int value = Character.digit(text.charAt(position + stride - 1), 16);
+			if (value < 0) {
+				return -1;
+			}
+			rgb = rgb << 4 | value;
+		}
+		return rgb;
+	}
+
+	private void setStyle(Style next) {
+		flush();
+		style = next;
+	}
+
+	private void flush() {
+		if (run.isEmpty()) {
+			return;
+		}
+		parts.add(Component.literal(run.toString()).setStyle(style));
+		run.setLength(0);
+	}
+
+	private static boolean isCodePrefix(char value) {
+		return value == '&' || value == '§';
+	}
+}
@@ -2,15 +2,39 @@ package com.nextgenchat.util;
 
 import net.minecraft.network.chat.Component;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public final class TextUtils {
+	private static final int CACHE_SIZE = 512;
+
+	private static final Map<String, Component> CACHE = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Component> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
 	private TextUtils() {
 	}
 
-	public static String applyColorCodes(String text) {
-		return text.replace("&", "§");
+	public static Component toComponent(String text) {
+		return new LegacyComponentBuilder().append(text).build();
 	}
 
-	public static Component toComponent(String text) {
-		return Component.literal(applyColorCodes(text));
+	/**
+	 * Like {@link #toComponent}, but for text that repeats verbatim: config messages, constant
+	 * broadcast lines, help text. Components are kept in a bounded LRU keyed by the source string and
+	 * shared between callers, so they must not be modified.
+	 */
+	public static Component cached(String text) {
+		synchronized (CACHE) {
+			Component component = CACHE.get(text);
+			if (component == null) {
+				component = toComponent(text);
+				CACHE.put(text, component);
+			}
+			return component;
+		}
 	}
 }
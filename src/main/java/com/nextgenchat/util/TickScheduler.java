@@ -0,0 +1,115 @@
+package com.nextgenchat.util;
+
+import com.nextgenchat.NextgenChatMod;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Hashed timing wheel keyed by absolute server tick. Scheduling and cancelling are O(1) and every
+ * task fires on its own deadline regardless of what else is queued. {@link #schedule} may be called
+ * from any thread; {@link #tick} and the tasks themselves run on the server thread.
+ */
+public final class TickScheduler {
+	private static final int WHEEL_SIZE = 512;
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+	private final Task[] slots = new Task[WHEEL_SIZE];
+	private final ConcurrentLinkedQueue<Task> incoming = new ConcurrentLinkedQueue<>();
+	private volatile long currentTick = -1;
+
+	public Task schedule(int delayTicks, Runnable action) {
+		Task task = new Task(currentTick + Math.max(1, delayTicks), action);
+		incoming.offer(task);
+		return task;
+	}
+
+	/**
+	 * Advances the wheel to {@code serverTick} and runs every task whose deadline has been reached.
+	 */
+	public void tick(long serverTick) {
+		long from = currentTick < 0 ? serverTick : currentTick + 1;
+		if (serverTick - from >= WHEEL_SIZE) {
+			from = serverTick - WHEEL_MASK;
+		}
+		currentTick = serverTick;
+		drainIncoming();
+
+		for (long tick = from; tick <= serverTick; tick++) {
+			expire(tick);
+		}
+	}
+
+	public void clear() {
+		incoming.clear();
+		Arrays.fill(slots, null);
+	}
+
+	private void drainIncoming() {
+		Task task;
+		while ((task = incoming.poll()) != null) {
+			if (task.cancelled) {
+				continue;
+			}
+
+			// A task scheduled before the first tick, or drained late, fires on the current tick.
+			if (task.deadline < currentTick) {
+				task.deadline = currentTick;
+			}
+			int slot = (int) (task.deadline & WHEEL_MASK);
+			task.next = slots[slot];
+			slots[slot] = task;
+		}
+	}
+
+	/**
+	 * Runs the due tasks of one slot. Tasks that hash here but belong to a later rotation stay.
+	 */
+	private void expire(long tick) {
+		int slot = (int) (tick & WHEEL_MASK);
+		Task pending = slots[slot];
+		slots[slot] = null;
+
+		Task remaining = null;
+		while (pending != null) {
+			Task task = pending;
+			pending = task.next;
+			task.next = null;
+
+			if (task.cancelled) {
+				continue;
+			}
+			if (task.deadline > tick) {
+				task.next = remaining;
+				remaining = task;
+				continue;
+			}
+
+			try {
+				task.action.run();
+			} catch (RuntimeException e) {
+				NextgenChatMod.LOGGER.error("Scheduled NextgenChat task failed", e);
+			}
+		}
+		slots[slot] = remaining;
+	}
+
+	public static final class Task {
+		private final Runnable action;
+		private long deadline;
+		private volatile boolean cancelled;
+		private Task next;
+
+		private Task(long deadline, Runnable action) {
+			this.deadline = deadline;
+			this.action = action;
+		}
+
+		/**
+		 * Cancellation is lazy: the task is unlinked when its slot is next visited.
+		 */
+		public void cancel() {
+			cancelled = true;
+		}
+	}
+}
@@ -1,33 +1,62 @@
 package com.nextgenchat.util;
 
 import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.ComponentContents;
+import net.minecraft.network.chat.contents.PlainTextContents;
+import net.minecraft.network.chat.contents.TranslatableContents;
 
-import java.util.regex.Pattern;
+import java.util.Set;
 
 /**
  * Filters only known vanilla join/quit system messages without blocking unrelated broadcasts.
+ * Vanilla sends these as translatable components, so they are recognised by key without
+ * flattening the component; death messages, advancements and other translatable broadcasts are
+ * rejected after a single set lookup. Only literal components, which other mods and proxies use to
+ * re-send the same text, fall back to matching the flattened string.
  */
 public final class VanillaMessageFilter {
-	private static final Pattern[] VANILLA_PATTERNS = {
-		Pattern.compile("^.+ joined the game$"),
-		Pattern.compile("^.+ left the game$"),
-		Pattern.compile("^.+ присоединился к серверу$"),
-		Pattern.compile("^.+ покинул сервер$"),
-		Pattern.compile("^.+ зашел на сервер$"),
-		Pattern.compile("^.+ вышел с сервера$"),
-		Pattern.compile("^.+ lost connection: .+$"),
+	private static final Set<String> JOIN_QUIT_KEYS = Set.of(
+		"multiplayer.player.joined",
+		"multiplayer.player.joined.renamed",
+		"multiplayer.player.left"
+	);
+
+	private static final String[] LITERAL_SUFFIXES = {
+		" joined the game",
+		" left the game",
+		" присоединился к серверу",
+		" покинул сервер",
+		" зашел на сервер",
+		" вышел с сервера",
 	};
+	private static final String LOST_CONNECTION = " lost connection: ";
 
 	private VanillaMessageFilter() {
 	}
 
 	public static boolean isVanillaJoinOrQuit(Component message) {
-		String plain = message.getString();
-		for (Pattern pattern : VANILLA_PATTERNS) {
-			if (pattern.matcher(plain).matches()) {
+		ComponentContents contents = message.getContents();
+		if (contents instanceof TranslatableContents translatable) {
+			return JOIN_QUIT_KEYS.contains(translatable.getKey());
+		}
+		if (contents instanceof PlainTextContents) {
+			return isLiteralJoinOrQuit(message.getString());
+		}
+		return false;
+	}
+
+	/**
+	 * Mirrors the former {@code ^.+ <suffix>$} and {@code ^.+ lost connection: .+$} regexes: the
+	 * suffix must be preceded by at least one character.
+	 */
+	private static boolean isLiteralJoinOrQuit(String plain) {
+		for (String suffix : LITERAL_SUFFIXES) {
+			if (plain.length() > suffix.length() && plain.endsWith(suffix)) {
 				return true;
 			}
 		}
-		return false;
+
+		int lostConnection = plain.indexOf(LOST_CONNECTION);
+		return lostConnection > 0 && lostConnection + LOST_CONNECTION.length() < plain.length();
 	}
 }